@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent resolving and parsing change logs with a growing number of change sets.
+ *
+ * @author Timo Kockert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeLogParsingBenchmark {
+
+    @Param({"10", "100", "10000"})
+    private int changeSets;
+
+    private GeneratedChangeLog changeLog;
+
+    @Setup
+    public void generateChangeLog() {
+        this.changeLog = new GeneratedChangeLog(this.changeSets);
+    }
+
+    @TearDown
+    public void deleteChangeLog() throws IOException {
+        this.changeLog.close();
+    }
+
+    @Benchmark
+    public List<ChangeSet> parse() {
+        ChangeLogReader reader = new ChangeLogReader();
+        return reader.read(reader.resolveChangeLogFiles(this.changeLog.getMainFile()));
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return new ChangeLogs(this.changeLog.getMainFile(), new ChangeLogReader()).getFingerprint();
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent validating the checksums of executed change sets, once the checksums of
+ * the change logs are known.
+ *
+ * @author Timo Kockert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChecksumValidationBenchmark {
+
+    @Param({"100", "10000"})
+    private int changeSets;
+
+    private ChangeLogs changeLogs;
+
+    private List<ChangeSetExecution> executions;
+
+    @Setup
+    public void recordExecutions() throws IOException {
+        try (GeneratedChangeLog changeLog = new GeneratedChangeLog(this.changeSets)) {
+            this.changeLogs = new ChangeLogs(changeLog.getMainFile(), new ChangeLogReader());
+            this.executions = new ArrayList<>();
+            for (ChangeSet changeSet : this.changeLogs.getChangeSets()) {
+                this.executions.add(new ChangeSetExecution(ChangeSetKey.of(changeSet), null, null,
+                        this.changeLogs.getChecksum(changeSet)));
+            }
+        }
+    }
+
+    @Benchmark
+    public ChangeSetChecksumValidator validate() {
+        ChangeSetChecksumValidator validator = new ChangeSetChecksumValidator(this.changeLogs::getChecksum, true);
+        validator.validate(this.changeLogs.getChangeSets(), this.executions);
+        return validator;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent refreshing an application context with and without Mongeez. The change
+ * sets are applied once during setup, so each invocation measures a restart of an
+ * application whose database is already up to date.
+ *
+ * @author Timo Kockert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContextRefreshBenchmark {
+
+    @Param({"true", "false"})
+    private boolean mongeezEnabled;
+
+    @Param({"false", "true"})
+    private boolean fingerprintEnabled;
+
+    @Param({"100"})
+    private int changeSets;
+
+    private EmbeddedMongo embeddedMongo;
+
+    private GeneratedChangeLog changeLog;
+
+    @Setup
+    public void startEmbeddedMongo() {
+        this.embeddedMongo = new EmbeddedMongo();
+        this.changeLog = new GeneratedChangeLog(this.changeSets);
+        refresh().close();
+    }
+
+    @TearDown
+    public void stopEmbeddedMongo() throws IOException {
+        this.changeLog.close();
+        this.embeddedMongo.close();
+    }
+
+    @Benchmark
+    public void refreshAndClose() {
+        refresh().close();
+    }
+
+    private AnnotationConfigApplicationContext refresh() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of("spring.data.mongodb.port:" + this.embeddedMongo.getPort(),
+                "spring.data.mongodb.database:benchmark",
+                "mongeez.enabled:" + this.mongeezEnabled,
+                "mongeez.fingerprint.enabled:" + this.fingerprintEnabled,
+                "mongeez.location:" + this.changeLog.getLocation()).applyTo(context);
+        context.register(MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Embedded MongoDB that is shared by all invocations of a benchmark.
+ *
+ * @author Timo Kockert
+ */
+class EmbeddedMongo implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    EmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+    }
+
+    Mongo getMongo() {
+        return this.context.getBean(Mongo.class);
+    }
+
+    int getPort() {
+        return this.context.getEnvironment().getRequiredProperty("local.mongo.port", Integer.class);
+    }
+
+    @Override
+    public void close() {
+        this.context.close();
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Change log with a given number of generated change sets in a temporary directory.
+ *
+ * @author Timo Kockert
+ */
+class GeneratedChangeLog implements AutoCloseable {
+
+    private static final int CHANGE_SETS_PER_FILE = 100;
+
+    private final Path directory;
+
+    private final Path mainFile;
+
+    GeneratedChangeLog(int changeSets) {
+        try {
+            this.directory = Files.createTempDirectory("mongeez-benchmark");
+            this.mainFile = this.directory.resolve("mongeez.xml");
+            int files = (changeSets + CHANGE_SETS_PER_FILE - 1) / CHANGE_SETS_PER_FILE;
+            try (PrintWriter main = new PrintWriter(Files.newBufferedWriter(this.mainFile, StandardCharsets.UTF_8))) {
+                main.println("<changeFiles>");
+                for (int file = 0; file < files; file++) {
+                    String fileName = "changes-" + file + ".xml";
+                    int from = file * CHANGE_SETS_PER_FILE;
+                    writeChangeLogFile(this.directory.resolve(fileName), from,
+                            Math.min(changeSets, from + CHANGE_SETS_PER_FILE));
+                    main.println("    <file path=\"" + fileName + "\"/>");
+                }
+                main.println("</changeFiles>");
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void writeChangeLogFile(Path file, int from, int to) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("<mongoChangeLog>");
+            for (int i = from; i < to; i++) {
+                writer.println("    <changeSet changeId=\"ChangeSet-" + i + "\" author=\"benchmark\">");
+                writer.println("        <script>db.benchmark.insert({ \"_id\" : " + i + " });</script>");
+                writer.println("    </changeSet>");
+            }
+            writer.println("</mongoChangeLog>");
+        }
+    }
+
+    Resource getMainFile() {
+        return new FileSystemResource(this.mainFile.toFile());
+    }
+
+    String getLocation() {
+        return this.mainFile.toUri().toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileSystemUtils.deleteRecursively(this.directory);
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent loading executed change sets and the fingerprint from the Mongeez
+ * collection of an embedded MongoDB.
+ *
+ * @author Timo Kockert
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackingCollectionBenchmark {
+
+    @Param({"10", "100", "10000"})
+    private int executedChangeSets;
+
+    private EmbeddedMongo embeddedMongo;
+
+    private MongeezTrackingCollection trackingCollection;
+
+    @Setup
+    public void populateTrackingCollection() {
+        this.embeddedMongo = new EmbeddedMongo();
+        this.trackingCollection = new MongeezTrackingCollection(this.embeddedMongo.getMongo(), "benchmark");
+        this.trackingCollection.configure();
+        for (int i = 0; i < this.executedChangeSets; i++) {
+            ChangeSet changeSet = new ChangeSet();
+            changeSet.setFile("changes-" + (i / 100) + ".xml");
+            changeSet.setChangeId("ChangeSet-" + i);
+            changeSet.setAuthor("benchmark");
+            this.trackingCollection.logChangeSet(changeSet, Duration.ofMillis(i % 50));
+        }
+        this.trackingCollection.saveFingerprint("benchmark");
+    }
+
+    @TearDown
+    public void stopEmbeddedMongo() {
+        this.embeddedMongo.close();
+    }
+
+    @Benchmark
+    public Set<ChangeSetKey> findExecutedChangeSets() {
+        return this.trackingCollection.findExecutedChangeSets();
+    }
+
+    @Benchmark
+    public String findFingerprint() {
+        return this.trackingCollection.findFingerprint();
+    }
+
+}
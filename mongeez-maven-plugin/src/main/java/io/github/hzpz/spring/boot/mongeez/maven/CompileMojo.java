@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.mongeez.maven;
+
+import io.github.hzpz.spring.boot.autoconfigure.mongeez.ChangeLogCompiler;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+
+/**
+ * Validates the Mongeez change logs and compiles them into an index that the starter
+ * loads on startup instead of resolving and parsing the change logs.
+ *
+ * @author Timo Kockert
+ */
+@Mojo(name = "compile", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
+public class CompileMojo extends AbstractMojo {
+
+    /**
+     * Directory that contains the change logs. Defaults to the build output directory, so
+     * the change logs are compiled as they end up on the classpath, e.g. after filtering.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File resourceDirectory;
+
+    /**
+     * Location of the main change log relative to the resource directory. Must match
+     * the {@code mongeez.location} property of the application.
+     */
+    @Parameter(property = "mongeez.location", defaultValue = "db/mongeez.xml", required = true)
+    private String location;
+
+    /**
+     * File to write the compiled index to.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}/META-INF/mongeez/changelog.idx", required = true)
+    private File outputFile;
+
+    /**
+     * Skip compiling the change logs.
+     */
+    @Parameter(property = "mongeez.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (this.skip) {
+            getLog().info("Skipping Mongeez change log compilation");
+            return;
+        }
+        try {
+            int changeSets = new ChangeLogCompiler(this.resourceDirectory).compile(this.location, this.outputFile);
+            getLog().info("Compiled " + changeSets + " Mongeez change sets to " + this.outputFile);
+        } catch (UncheckedIOException ex) {
+            throw new MojoExecutionException(ex.getMessage(), ex.getCause());
+        } catch (RuntimeException ex) {
+            throw new MojoFailureException("Invalid Mongeez change logs: " + ex.getMessage(), ex);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.mongeez.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CompileMojoTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File outputDirectory;
+
+    private File outputFile;
+
+    private CompileMojo mojo;
+
+    @Before
+    public void createMojo() throws IOException {
+        this.outputDirectory = this.temporaryFolder.newFolder("classes");
+        this.outputFile = new File(this.outputDirectory, "META-INF/mongeez/changelog.idx");
+        this.mojo = new CompileMojo();
+        ReflectionTestUtils.setField(this.mojo, "resourceDirectory", this.outputDirectory);
+        ReflectionTestUtils.setField(this.mojo, "location", "db/mongeez.xml");
+        ReflectionTestUtils.setField(this.mojo, "outputFile", this.outputFile);
+        write("db/mongeez.xml", "<changeFiles><file path=\"changes.xml\"/></changeFiles>");
+    }
+
+    @Test
+    public void shouldCompileChangeLogs() throws Exception {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+
+        this.mojo.execute();
+
+        assertThat(this.outputFile.length() > 0, equalTo(true));
+    }
+
+    @Test
+    public void shouldFailOnInvalidChangeLogs() throws Exception {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.b.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+
+        try {
+            this.mojo.execute();
+            fail("Expected MojoFailureException");
+        } catch (MojoFailureException ex) {
+            assertThat(ex.getMessage(), containsString("Duplicate Mongeez change sets"));
+        }
+        assertThat(this.outputFile.exists(), equalTo(false));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void shouldFailOnMissingChangeLog() throws Exception {
+        ReflectionTestUtils.setField(this.mojo, "location", "db/missing.xml");
+        this.mojo.execute();
+    }
+
+    @Test
+    public void shouldSkip() throws MojoExecutionException, MojoFailureException {
+        ReflectionTestUtils.setField(this.mojo, "skip", true);
+
+        this.mojo.execute();
+
+        assertThat(this.outputFile.exists(), equalTo(false));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(this.outputDirectory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.commands.Script;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Replacement for Mongeez' own change set executor that loads all executed change sets
+ * with a single query instead of querying the Mongeez collection once per change set.
+ * <p>
+ * Pending change sets are grouped by change log file. If a parallelism greater than 1 is
+ * configured, groups are executed concurrently while change sets within a group are
+ * still executed in order.
+ *
+ * @author Timo Kockert
+ */
+class BatchingChangeSetExecutor {
+
+    private static final Log logger = LogFactory.getLog(BatchingChangeSetExecutor.class);
+
+    private final ScriptRunner scriptRunner;
+
+    private final MongeezTrackingCollection trackingCollection;
+
+    private final String database;
+
+    private final String context;
+
+    private final MigrationListener listener;
+
+    private int parallelism = 1;
+
+    private Map<String, String> groups = Collections.emptyMap();
+
+    private BulkWriteChangeSetWriter bulkWriter;
+
+    private IndexChangeSetBuilder indexBuilder;
+
+    private boolean asyncIndexBuilds;
+
+    private Function<ChangeSet, String> checksums;
+
+    private boolean validateChecksums;
+
+    private final List<CompletableFuture<?>> indexBuilds = Collections.synchronizedList(new ArrayList<>());
+
+    BatchingChangeSetExecutor(ScriptRunner scriptRunner, MongeezTrackingCollection trackingCollection,
+                              String database, String context, MigrationListener listener) {
+        this.scriptRunner = scriptRunner;
+        this.trackingCollection = trackingCollection;
+        this.database = database;
+        this.context = context;
+        this.listener = listener;
+    }
+
+    void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    void setGroups(Map<String, String> groups) {
+        this.groups = groups;
+    }
+
+    void setBulkWriter(BulkWriteChangeSetWriter bulkWriter) {
+        this.bulkWriter = bulkWriter;
+    }
+
+    void setIndexBuilder(IndexChangeSetBuilder indexBuilder) {
+        this.indexBuilder = indexBuilder;
+    }
+
+    void setAsyncIndexBuilds(boolean asyncIndexBuilds) {
+        this.asyncIndexBuilds = asyncIndexBuilds;
+    }
+
+    /**
+     * Set the function that provides the checksums to record with executed change sets.
+     * @param checksums the checksums or {@code null} to record no checksums
+     */
+    void setChecksums(Function<ChangeSet, String> checksums) {
+        this.checksums = checksums;
+    }
+
+    void setValidateChecksums(boolean validateChecksums) {
+        this.validateChecksums = validateChecksums;
+    }
+
+    /**
+     * Return a future that completes once all index builds that have been started in
+     * the background have finished.
+     * @return the future
+     */
+    CompletableFuture<Void> getIndexBuildCompletion() {
+        synchronized (this.indexBuilds) {
+            return CompletableFuture.allOf(this.indexBuilds.toArray(new CompletableFuture<?>[0]));
+        }
+    }
+
+    void execute(List<ChangeSet> changeSets) {
+        long start = System.nanoTime();
+        this.trackingCollection.configure();
+        List<ChangeSetExecution> executions = this.trackingCollection.findExecutions();
+        Set<ChangeSetKey> executed = new HashSet<>();
+        for (ChangeSetExecution execution : executions) {
+            executed.add(execution.getKey());
+        }
+        this.listener.executedChangeSetsLoaded(this.database, executed.size(),
+                Duration.ofNanos(System.nanoTime() - start));
+        if (this.validateChecksums && this.checksums != null) {
+            validateChecksums(changeSets, executions);
+        }
+        List<ChangeSet> pending = findPending(changeSets, executed);
+        logger.info("Process " + changeSets.size() + " change sets, " + pending.size() + " pending");
+        if (this.parallelism > 1) {
+            executeConcurrently(group(pending, this.groups));
+        } else {
+            executeSequentially(pending);
+        }
+    }
+
+    private void validateChecksums(List<ChangeSet> changeSets, List<ChangeSetExecution> executions) {
+        long start = System.nanoTime();
+        ChangeSetChecksumValidator validator = new ChangeSetChecksumValidator(this.checksums,
+                this.trackingCollection.isResourcePathSupported());
+        validator.validate(changeSets, executions);
+        this.trackingCollection.saveMissingChecksums(validator.getMissingChecksums());
+        logger.debug("Validated checksums of " + executions.size() + " executed change sets in "
+                + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+    private String checksum(ChangeSet changeSet) {
+        return this.checksums != null ? this.checksums.apply(changeSet) : null;
+    }
+
+    static Map<String, List<ChangeSet>> group(List<ChangeSet> changeSets, Map<String, String> groups) {
+        Map<String, List<ChangeSet>> grouped = new LinkedHashMap<>();
+        for (ChangeSet changeSet : changeSets) {
+            String group = groups.getOrDefault(changeSet.getFile(), changeSet.getFile());
+            grouped.computeIfAbsent(group, (key) -> new ArrayList<>()).add(changeSet);
+        }
+        return grouped;
+    }
+
+    /**
+     * Determine whether the given change set needs to be executed.
+     * @param changeSet the change set
+     * @param executed the keys of all executed change sets
+     * @param resourcePath whether the resource path is part of the keys
+     * @param context the Mongeez context
+     * @return whether the change set is pending
+     */
+    static boolean isPending(ChangeSet changeSet, Set<ChangeSetKey> executed, boolean resourcePath,
+                             String context) {
+        return changeSet.canBeAppliedInContext(context)
+                && (changeSet.isRunAlways() || !executed.contains(ChangeSetKey.of(changeSet, resourcePath)));
+    }
+
+    private List<ChangeSet> findPending(List<ChangeSet> changeSets, Set<ChangeSetKey> executed) {
+        List<ChangeSet> pending = new ArrayList<>();
+        for (ChangeSet changeSet : changeSets) {
+            if (!changeSet.canBeAppliedInContext(this.context)) {
+                logger.debug("Change set " + changeSet.getChangeId() + " cannot be applied in context "
+                        + this.context);
+            } else if (isPending(changeSet, executed, this.trackingCollection.isResourcePathSupported(),
+                    this.context)) {
+                pending.add(changeSet);
+            } else {
+                logger.debug("Change set already executed: " + changeSet.getChangeId());
+                this.listener.changeSetSkipped(this.database, changeSet);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Execute the given change sets in order. An index change set is only built in the
+     * background if it is the last one, so that no change set after it runs before its
+     * indexes exist.
+     * @param changeSets the change sets of a group, or all pending change sets if they
+     * are not executed concurrently
+     */
+    private void executeSequentially(List<ChangeSet> changeSets) {
+        for (int i = 0; i < changeSets.size(); i++) {
+            ChangeSet changeSet = changeSets.get(i);
+            if (changeSet instanceof IndexChangeSet && this.asyncIndexBuilds) {
+                if (i == changeSets.size() - 1) {
+                    executeInBackground((IndexChangeSet) changeSet);
+                    continue;
+                }
+                logger.info("Change set " + changeSet.getChangeId() + " is not the last of its group, "
+                        + "building its indexes before continuing");
+            }
+            execute(changeSet);
+        }
+    }
+
+    private void executeConcurrently(Map<String, List<ChangeSet>> groups) {
+        int threads = Math.min(this.parallelism, groups.size());
+        if (threads <= 1) {
+            groups.values().forEach(this::executeSequentially);
+            return;
+        }
+        logger.info("Execute " + groups.size() + " change set groups using " + threads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new CustomizableThreadFactory("mongeez-group-"));
+        try {
+            Map<String, Future<?>> futures = new LinkedHashMap<>();
+            groups.forEach((group, changeSets) ->
+                    futures.put(group, executor.submit(() -> executeSequentially(changeSets))));
+            RuntimeException failure = null;
+            for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+                try {
+                    future.getValue().get();
+                } catch (ExecutionException ex) {
+                    logger.error("Change set group " + future.getKey() + " has failed", ex.getCause());
+                    if (failure == null) {
+                        failure = asRuntimeException(ex.getCause());
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while executing change sets", ex);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RuntimeException asRuntimeException(Throwable ex) {
+        if (ex instanceof RuntimeException) {
+            return (RuntimeException) ex;
+        }
+        return new IllegalStateException("Change set execution has failed", ex);
+    }
+
+    private void execute(ChangeSet changeSet) {
+        long start = System.nanoTime();
+        long written = -1;
+        try {
+            if (changeSet instanceof BulkWriteChangeSet) {
+                written = this.bulkWriter.write((BulkWriteChangeSet) changeSet);
+                logger.debug("Change set " + changeSet.getChangeId() + " has written " + written + " documents");
+            } else if (changeSet instanceof IndexChangeSet) {
+                int created = this.indexBuilder.build((IndexChangeSet) changeSet);
+                logger.debug("Change set " + changeSet.getChangeId() + " has created " + created + " indexes");
+            } else {
+                for (Script command : changeSet.getCommands()) {
+                    this.scriptRunner.run(command);
+                }
+            }
+        } catch (RuntimeException ex) {
+            this.listener.changeSetFailed(this.database, changeSet, Duration.ofNanos(System.nanoTime() - start), ex);
+            if (changeSet.isFailOnError()) {
+                throw ex;
+            }
+            logger.warn("Change set " + changeSet.getChangeId() + " has failed, but failOnError is false", ex);
+            this.trackingCollection.logChangeSet(changeSet, Duration.ofNanos(System.nanoTime() - start),
+                    checksum(changeSet));
+            return;
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        this.trackingCollection.logChangeSet(changeSet, duration, checksum(changeSet));
+        if (written >= 0) {
+            this.listener.documentsAffected(this.database, changeSet, written);
+        }
+        this.listener.changeSetExecuted(this.database, changeSet, duration);
+        logger.info("Change set " + changeSet.getChangeId() + " has been executed");
+    }
+
+    /**
+     * Build the indexes of the given change set in the background. The change set is
+     * only recorded once all of its indexes have been built, so a failed or interrupted
+     * build is retried on the next migration.
+     * @param changeSet the change set
+     */
+    private void executeInBackground(IndexChangeSet changeSet) {
+        long start = System.nanoTime();
+        logger.info("Change set " + changeSet.getChangeId() + " continues in the background");
+        this.indexBuilds.add(this.indexBuilder.buildAsync(changeSet).whenComplete((created, ex) -> {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            if (ex != null) {
+                logger.error("Change set " + changeSet.getChangeId() + " has failed in the background", ex);
+                this.listener.changeSetFailed(this.database, changeSet, duration, ex);
+                return;
+            }
+            this.trackingCollection.logChangeSet(changeSet, duration, checksum(changeSet));
+            this.listener.changeSetExecuted(this.database, changeSet, duration);
+            logger.info("Change set " + changeSet.getChangeId() + " has been executed in the background");
+        }));
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.Resource;
+
+/**
+ * {@link ChangeSet} that writes the documents of a newline delimited JSON file to a
+ * collection using unordered bulk writes instead of executing scripts.
+ *
+ * @author Timo Kockert
+ * @see BulkWriteChangeSetReader
+ */
+class BulkWriteChangeSet extends ChangeSet {
+
+    private Resource resource;
+
+    private String collection;
+
+    private boolean upsert;
+
+    private Integer batchSize;
+
+    Resource getResource() {
+        return this.resource;
+    }
+
+    void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    String getCollection() {
+        return this.collection;
+    }
+
+    void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    boolean isUpsert() {
+        return this.upsert;
+    }
+
+    void setUpsert(boolean upsert) {
+        this.upsert = upsert;
+    }
+
+    Integer getBatchSize() {
+        return this.batchSize;
+    }
+
+    void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+}
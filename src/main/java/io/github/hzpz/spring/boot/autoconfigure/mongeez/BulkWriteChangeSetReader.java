@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads {@link BulkWriteChangeSet BulkWriteChangeSets} from newline delimited JSON files.
+ * <p>
+ * The first line of the file describes the change set, e.g.
+ * {@code {"changeId": "seedCountries", "author": "hzpz", "collection": "countries"}}.
+ * Optionally, {@code "upsert": true} replaces documents by {@code _id} instead of
+ * inserting them, which requires every document to have an {@code _id}, and
+ * {@code "batchSize"} overrides the configured batch size. Each
+ * following line contains one document in MongoDB extended JSON. Only the first line is
+ * read here, the documents are streamed when the change set is executed.
+ *
+ * @author Timo Kockert
+ */
+final class BulkWriteChangeSetReader {
+
+    private static final String[] EXTENSIONS = {".ndjson", ".jsonl"};
+
+    private BulkWriteChangeSetReader() {
+    }
+
+    static boolean supports(Resource resource) {
+        String filename = resource.getFilename();
+        if (filename == null) {
+            return false;
+        }
+        for (String extension : EXTENSIONS) {
+            if (filename.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static BulkWriteChangeSet read(Resource resource) {
+        BasicDBObject header = BasicDBObject.parse(readHeader(resource));
+        BulkWriteChangeSet changeSet = new BulkWriteChangeSet();
+        changeSet.setResource(resource);
+        changeSet.setFile(resource.getFilename());
+        changeSet.setChangeId(required(header, "changeId", resource));
+        changeSet.setAuthor(required(header, "author", resource));
+        changeSet.setCollection(required(header, "collection", resource));
+        changeSet.setUpsert(header.getBoolean("upsert", false));
+        if (header.containsField("batchSize")) {
+            int batchSize = header.getInt("batchSize");
+            if (batchSize < 1) {
+                throw new IllegalStateException("Invalid 'batchSize' " + batchSize + " in change set header of "
+                        + resource.getDescription() + ", must be at least 1");
+            }
+            changeSet.setBatchSize(batchSize);
+        }
+        if (header.containsField("contexts")) {
+            changeSet.setContexts(header.getString("contexts"));
+        }
+        return changeSet;
+    }
+
+    private static String readHeader(Resource resource) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (!StringUtils.hasText(line)) {
+                throw new IllegalStateException("Missing change set header in " + resource.getDescription());
+            }
+            return line;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez change log " + resource.getDescription(), ex);
+        }
+    }
+
+    private static String required(BasicDBObject header, String field, Resource resource) {
+        String value = header.getString(field);
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalStateException("Missing '" + field + "' in change set header of "
+                    + resource.getDescription());
+        }
+        return value;
+    }
+
+}
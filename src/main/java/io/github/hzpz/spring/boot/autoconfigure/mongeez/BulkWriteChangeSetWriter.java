@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Executes {@link BulkWriteChangeSet BulkWriteChangeSets} by streaming their documents
+ * into unordered bulk writes of a configurable size.
+ *
+ * @author Timo Kockert
+ */
+class BulkWriteChangeSetWriter {
+
+    private static final String ID = "_id";
+
+    private final DB database;
+
+    private final int batchSize;
+
+    BulkWriteChangeSetWriter(DB database, int batchSize) {
+        this.database = database;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Write all documents of the given change set.
+     * @param changeSet the change set
+     * @return the number of documents inserted or replaced
+     */
+    long write(BulkWriteChangeSet changeSet) {
+        DBCollection collection = this.database.getCollection(changeSet.getCollection());
+        int batchSize = changeSet.getBatchSize() != null ? changeSet.getBatchSize() : this.batchSize;
+        long written = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(changeSet.getResource().getInputStream(), StandardCharsets.UTF_8))) {
+            // skip change set header
+            reader.readLine();
+            BulkWriteOperation bulk = null;
+            int size = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!StringUtils.hasText(line)) {
+                    continue;
+                }
+                if (bulk == null) {
+                    bulk = collection.initializeUnorderedBulkOperation();
+                }
+                add(bulk, BasicDBObject.parse(line), changeSet);
+                if (++size == batchSize) {
+                    written += execute(bulk);
+                    bulk = null;
+                    size = 0;
+                }
+            }
+            if (bulk != null) {
+                written += execute(bulk);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez change log "
+                    + changeSet.getResource().getDescription(), ex);
+        }
+        return written;
+    }
+
+    private static void add(BulkWriteOperation bulk, BasicDBObject document, BulkWriteChangeSet changeSet) {
+        if (!changeSet.isUpsert()) {
+            bulk.insert(document);
+            return;
+        }
+        // without _id, the document would be inserted again when the change set is re-executed
+        if (!document.containsField(ID)) {
+            throw new IllegalStateException("Document without _id in upserting change set "
+                    + changeSet.getChangeId() + " of " + changeSet.getResource().getDescription());
+        }
+        bulk.find(new BasicDBObject(ID, document.get(ID))).upsert().replaceOne(document);
+    }
+
+    private static long execute(BulkWriteOperation bulk) {
+        BulkWriteResult result = bulk.execute();
+        if (!result.isAcknowledged()) {
+            return 0;
+        }
+        return result.getInsertedCount() + result.getMatchedCount() + result.getUpserts().size();
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.springframework.core.io.Resource;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the files included by a main change log with a streaming parser instead of
+ * Mongeez' Digester based file provider, so the fingerprint of unchanged change logs can
+ * be checked without loading any of Mongeez' XML parsing classes.
+ * <p>
+ * Accepts the same format as Mongeez: a {@code changeFiles} element containing
+ * {@code file} elements whose {@code path} is relative to the main change log.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeFilesetReader {
+
+    private static final String CHANGE_FILES = "changeFiles";
+
+    private static final String FILE = "file";
+
+    private static final String PATH = "path";
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private ChangeFilesetReader() {
+    }
+
+    static List<Resource> read(Resource file) {
+        List<Resource> files = new ArrayList<>();
+        try (InputStream inputStream = file.getInputStream()) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+            try {
+                int depth = 0;
+                boolean changeFiles = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamReader.START_ELEMENT) {
+                        depth++;
+                        if (depth == 1) {
+                            changeFiles = CHANGE_FILES.equals(reader.getLocalName());
+                        } else if (depth == 2 && changeFiles && FILE.equals(reader.getLocalName())) {
+                            String path = reader.getAttributeValue(null, PATH);
+                            if (path == null) {
+                                throw new IllegalStateException("Missing path of included file in Mongeez change log "
+                                        + file.getDescription());
+                            }
+                            files.add(file.createRelative(path));
+                        }
+                    } else if (event == XMLStreamReader.END_ELEMENT) {
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException ex) {
+            throw new IllegalStateException("Cannot read Mongeez change log " + file.getDescription(), ex);
+        }
+        return files;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return inputFactory;
+    }
+
+}
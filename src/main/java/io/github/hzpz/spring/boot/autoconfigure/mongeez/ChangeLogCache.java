@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mongeez.commands.ChangeSet;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Local cache of parsed change log files, keyed by their location and the digest of their
+ * content. Parsed change sets carry the name and path of their file, so files with the
+ * same content at different locations must not share an entry.
+ *
+ * @author Timo Kockert
+ * @see ChangeSetCodec
+ */
+class ChangeLogCache {
+
+    private static final Log logger = LogFactory.getLog(ChangeLogCache.class);
+
+    private static final String SUFFIX = ".changesets";
+
+    private final Path directory;
+
+    ChangeLogCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Return the cached change sets of the change log file with the given digest.
+     * @param location the location of the change log file
+     * @param digest the digest of the change log file
+     * @return the cached change sets or {@code null} if there are none
+     */
+    List<ChangeSet> get(String location, byte[] digest) {
+        Path file = resolve(location, digest);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return ChangeSetCodec.decode(buffer);
+        } catch (IOException ex) {
+            logger.debug("Ignoring unreadable Mongeez change log cache file " + file, ex);
+            return null;
+        } catch (IllegalArgumentException ex) {
+            logger.warn("Deleting corrupt Mongeez change log cache file " + file + ": " + ex.getMessage());
+            delete(file);
+            return null;
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.debug("Cannot delete Mongeez change log cache file " + file, ex);
+        }
+    }
+
+    void put(String location, byte[] digest, List<ChangeSet> changeSets) {
+        Path file = resolve(location, digest);
+        try {
+            Files.createDirectories(this.directory);
+            Path temp = Files.createTempFile(this.directory, "mongeez", SUFFIX);
+            Files.write(temp, ChangeSetCodec.encode(changeSets));
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            logger.warn("Cannot write Mongeez change log cache file " + file, ex);
+        }
+    }
+
+    private Path resolve(String location, byte[] digest) {
+        MessageDigest key = ChangeLogFingerprint.newDigest();
+        key.update(location.getBytes(StandardCharsets.UTF_8));
+        key.update((byte) 0);
+        key.update(digest);
+        return this.directory.resolve(ChangeLogFingerprint.toHex(key.digest()) + SUFFIX);
+    }
+
+}
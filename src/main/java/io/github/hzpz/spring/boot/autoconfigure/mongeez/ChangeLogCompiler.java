@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles Mongeez change logs at build time into an index that is loaded at startup
+ * instead of resolving and parsing the change logs. Validates the change logs and fails
+ * on duplicate change sets.
+ * <p>
+ * Used by the {@code mongeez-maven-plugin}, but can be called from any build tool.
+ *
+ * @author Timo Kockert
+ */
+public final class ChangeLogCompiler {
+
+    private final Path resourceDirectory;
+
+    /**
+     * Create a new compiler.
+     * @param resourceDirectory the directory that contains the change logs and whose
+     * content ends up on the classpath, e.g. {@code target/classes}
+     */
+    public ChangeLogCompiler(File resourceDirectory) {
+        this.resourceDirectory = resourceDirectory.toPath().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Compile the change logs of the given main change log.
+     * @param location the location of the main change log relative to the resource
+     * directory, optionally prefixed with {@code classpath:}
+     * @param outputFile the file to write the index to, usually
+     * {@code META-INF/mongeez/changelog.idx} in the output directory of the build
+     * @return the number of compiled change sets
+     * @throws IllegalStateException if the change logs are invalid
+     */
+    public int compile(String location, File outputFile) {
+        String path = ChangeLogIndex.toClasspathPath(location);
+        Resource mainFile = new FileSystemResource(this.resourceDirectory.resolve(path).toFile());
+        if (!mainFile.exists()) {
+            throw new IllegalStateException("Cannot find Mongeez change log " + mainFile.getDescription());
+        }
+        ChangeLogReader reader = new ChangeLogReader();
+        List<Resource> files = reader.resolveChangeLogFiles(mainFile);
+        Map<String, List<ChangeSet>> compiled = new LinkedHashMap<>();
+        List<ChangeSet> changeSets = new ArrayList<>();
+        for (Resource file : files) {
+            boolean referenced = ChangeLogReader.isReferenced(file);
+            String classpathLocation = toClasspathLocation(file);
+            List<ChangeSet> fileChangeSets = referenced ? ChangeLogReader.readReferenced(file) : reader.parse(file);
+            if (!referenced) {
+                // like Mongeez does for change logs read from the classpath at runtime
+                for (ChangeSet changeSet : fileChangeSets) {
+                    changeSet.setResourcePath(classpathLocation);
+                }
+            }
+            compiled.put(classpathLocation, referenced ? null : fileChangeSets);
+            changeSets.addAll(fileChangeSets);
+        }
+        checkDuplicates(changeSets);
+        reader.validate(changeSets);
+        Map<ChangeSetKey, String> checksums = new LinkedHashMap<>();
+        for (ChangeSet changeSet : changeSets) {
+            checksums.put(ChangeSetKey.of(changeSet), ChangeSetChecksum.compute(changeSet));
+        }
+        List<Resource> fingerprinted = new ArrayList<>(files.size() + 1);
+        fingerprinted.add(mainFile);
+        fingerprinted.addAll(files);
+        String fingerprint = ChangeLogFingerprint.compute(fingerprinted, this::toClasspathLocation);
+        ChangeLogIndex index = new ChangeLogIndex(path, fingerprint, compiled, checksums);
+        write(index, outputFile);
+        return changeSets.size();
+    }
+
+    private static void checkDuplicates(List<ChangeSet> changeSets) {
+        Set<ChangeSetKey> keys = new LinkedHashSet<>();
+        List<String> duplicates = new ArrayList<>();
+        for (ChangeSet changeSet : changeSets) {
+            if (!keys.add(ChangeSetKey.of(changeSet))) {
+                duplicates.add(changeSet.getChangeId() + " by " + changeSet.getAuthor() + " in " + changeSet.getFile());
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("Duplicate Mongeez change sets: " + duplicates);
+        }
+    }
+
+    private String toClasspathLocation(Resource file) {
+        try {
+            Path path = file.getFile().toPath().toAbsolutePath().normalize();
+            if (!path.startsWith(this.resourceDirectory)) {
+                throw new IllegalStateException("Mongeez change log " + path + " is not located in "
+                        + this.resourceDirectory);
+            }
+            return this.resourceDirectory.relativize(path).toString().replace(File.separatorChar, '/');
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot resolve Mongeez change log " + file.getDescription(), ex);
+        }
+    }
+
+    private static void write(ChangeLogIndex index, File outputFile) {
+        try {
+            Files.createDirectories(outputFile.toPath().toAbsolutePath().getParent());
+            Files.write(outputFile.toPath(), index.encode());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write Mongeez change log index " + outputFile, ex);
+        }
+    }
+
+}
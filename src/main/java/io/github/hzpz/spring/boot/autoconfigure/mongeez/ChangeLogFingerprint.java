@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Computes a fingerprint over the content of all Mongeez change log files.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeLogFingerprint {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private ChangeLogFingerprint() {
+    }
+
+    static String compute(List<Resource> resources) {
+        return compute(resources, ChangeLogFingerprint::pathOf);
+    }
+
+    /**
+     * Compute the fingerprint over the path and content of the given change log files.
+     * @param resources the change log files
+     * @param pathResolver resolves the classpath relative path of a change log file
+     * @return the fingerprint
+     */
+    static String compute(List<Resource> resources, Function<Resource, String> pathResolver) {
+        MessageDigest digest = newDigest();
+        for (Resource resource : resources) {
+            digest.update(pathResolver.apply(resource).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(digest(resource));
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Combine a change log fingerprint with additional values, e.g. the ids of migrations
+     * that are not part of the change logs.
+     * @param fingerprint the change log fingerprint
+     * @param values the additional values
+     * @return the combined fingerprint
+     */
+    static String compute(String fingerprint, List<String> values) {
+        MessageDigest digest = newDigest();
+        digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        for (String value : values) {
+            digest.update((byte) 0);
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String pathOf(Resource resource) {
+        if (resource instanceof ClassPathResource) {
+            return ((ClassPathResource) resource).getPath();
+        }
+        return resource.getDescription();
+    }
+
+    static byte[] digest(Resource resource) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = resource.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez change log " + resource.getDescription(), ex);
+        }
+        return digest.digest();
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ALGORITHM + " is not available", ex);
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Change logs compiled at build time by {@link ChangeLogCompiler}. Contains the
+ * classpath locations of all included change log files, their fingerprint, the parsed
+ * change sets of XML change logs and a checksum per change set. Bulk write and index
+ * change logs are only referenced and read when needed, since reading them is cheap.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeLogIndex {
+
+    static final String DEFAULT_LOCATION = "META-INF/mongeez/changelog.idx";
+
+    private static final int MAGIC = 0x4d5a4958;
+
+    private static final int VERSION = 2;
+
+    private static final byte PARSED = 0;
+
+    private static final byte REFERENCED = 1;
+
+    private final String location;
+
+    private final String fingerprint;
+
+    private final Map<String, List<ChangeSet>> files;
+
+    private final Map<ChangeSetKey, String> checksums;
+
+    ChangeLogIndex(String location, String fingerprint, Map<String, List<ChangeSet>> files,
+                   Map<ChangeSetKey, String> checksums) {
+        this.location = location;
+        this.fingerprint = fingerprint;
+        this.files = files;
+        this.checksums = checksums;
+    }
+
+    /**
+     * Return the location of the main change log the index has been compiled from,
+     * relative to the classpath.
+     * @return the location of the main change log
+     */
+    String getLocation() {
+        return this.location;
+    }
+
+    String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    List<Resource> getFiles() {
+        List<Resource> files = new ArrayList<>(this.files.size());
+        for (String file : this.files.keySet()) {
+            files.add(new ClassPathResource(file));
+        }
+        return files;
+    }
+
+    List<ChangeSet> getChangeSets() {
+        List<ChangeSet> changeSets = new ArrayList<>();
+        for (Map.Entry<String, List<ChangeSet>> file : this.files.entrySet()) {
+            if (file.getValue() != null) {
+                changeSets.addAll(file.getValue());
+            } else {
+                changeSets.addAll(ChangeLogReader.readReferenced(new ClassPathResource(file.getKey())));
+            }
+        }
+        return changeSets;
+    }
+
+    Map<ChangeSetKey, String> getChecksums() {
+        return this.checksums;
+    }
+
+    /**
+     * Determine whether the given main change log location refers to the change log this
+     * index has been compiled from.
+     * @param location the configured location, e.g. {@code classpath:db/mongeez.xml}
+     * @return whether the index matches the location
+     */
+    boolean matches(String location) {
+        return this.location.equals(toClasspathPath(location));
+    }
+
+    /**
+     * Strip the {@code classpath:} prefix and leading slashes from the given location.
+     * @param location the location
+     * @return the path relative to the classpath root
+     */
+    static String toClasspathPath(String location) {
+        String path = location.startsWith("classpath:") ? location.substring("classpath:".length()) : location;
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path;
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            ChangeSetCodec.writeString(output, this.location);
+            ChangeSetCodec.writeString(output, this.fingerprint);
+            output.writeInt(this.files.size());
+            for (Map.Entry<String, List<ChangeSet>> file : this.files.entrySet()) {
+                ChangeSetCodec.writeString(output, file.getKey());
+                if (file.getValue() != null) {
+                    output.writeByte(PARSED);
+                    output.write(ChangeSetCodec.encode(file.getValue()));
+                } else {
+                    output.writeByte(REFERENCED);
+                }
+            }
+            output.writeInt(this.checksums.size());
+            for (Map.Entry<ChangeSetKey, String> checksum : this.checksums.entrySet()) {
+                ChangeSetCodec.writeString(output, checksum.getKey().getFile());
+                ChangeSetCodec.writeString(output, checksum.getKey().getChangeId());
+                ChangeSetCodec.writeString(output, checksum.getKey().getAuthor());
+                ChangeSetCodec.writeString(output, checksum.getKey().getResourcePath());
+                ChangeSetCodec.writeString(output, checksum.getValue());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Load the index from the given resource.
+     * @param resource the resource
+     * @return the index or {@code null} if the resource does not exist
+     * @throws IllegalArgumentException if the resource is not an index compiled by this
+     * version of the starter
+     */
+    static ChangeLogIndex load(Resource resource) {
+        if (!resource.exists()) {
+            return null;
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            return decode(ByteBuffer.wrap(StreamUtils.copyToByteArray(inputStream)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez change log index " + resource.getDescription(), ex);
+        }
+    }
+
+    static ChangeLogIndex decode(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Unsupported change log index");
+            }
+            String location = ChangeSetCodec.readString(buffer);
+            String fingerprint = ChangeSetCodec.readString(buffer);
+            int fileCount = buffer.getInt();
+            Map<String, List<ChangeSet>> files = new LinkedHashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                String file = ChangeSetCodec.readString(buffer);
+                files.put(file, buffer.get() == PARSED ? ChangeSetCodec.decode(buffer) : null);
+            }
+            int checksumCount = buffer.getInt();
+            Map<ChangeSetKey, String> checksums = new LinkedHashMap<>();
+            for (int i = 0; i < checksumCount; i++) {
+                ChangeSetKey key = new ChangeSetKey(ChangeSetCodec.readString(buffer),
+                        ChangeSetCodec.readString(buffer), ChangeSetCodec.readString(buffer),
+                        ChangeSetCodec.readString(buffer));
+                checksums.put(key, ChangeSetCodec.readString(buffer));
+            }
+            return new ChangeLogIndex(location, fingerprint, files, Collections.unmodifiableMap(checksums));
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated change log index", ex);
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.reader.ChangeSetReader;
+import org.mongeez.reader.ChangeSetReaderFactory;
+import org.mongeez.validation.ChangeSetsValidator;
+import org.mongeez.validation.DefaultChangeSetsValidator;
+import org.springframework.core.io.Resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves and parses Mongeez change logs, optionally using a {@link ChangeLogCache} to
+ * skip parsing of unchanged change log files.
+ *
+ * @author Timo Kockert
+ */
+class ChangeLogReader {
+
+    private ChangeSetsValidator changeSetsValidator;
+
+    private ChangeLogCache cache;
+
+    void setCache(ChangeLogCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Resolve the files included by the given main change log.
+     * @param file the main change log, usually {@code mongeez.xml}
+     * @return the included change log files
+     */
+    List<Resource> resolveChangeLogFiles(Resource file) {
+        return ChangeFilesetReader.read(file);
+    }
+
+    List<ChangeSet> read(List<Resource> changeLogFiles) {
+        List<ChangeSet> changeSets = new ArrayList<>();
+        for (Resource changeLogFile : changeLogFiles) {
+            if (isReferenced(changeLogFile)) {
+                changeSets.addAll(readReferenced(changeLogFile));
+            } else {
+                changeSets.addAll(this.cache != null ? readCached(changeLogFile) : parse(changeLogFile));
+            }
+        }
+        validate(changeSets);
+        return changeSets;
+    }
+
+    void validate(List<ChangeSet> changeSets) {
+        // created lazily, like the readers, so they are not loaded if the change logs are up to date
+        if (this.changeSetsValidator == null) {
+            this.changeSetsValidator = new DefaultChangeSetsValidator();
+        }
+        this.changeSetsValidator.validate(changeSets);
+    }
+
+    /**
+     * Parse a single XML change log file without using the cache.
+     * @param changeLogFile the change log file
+     * @return its change sets
+     */
+    List<ChangeSet> parse(Resource changeLogFile) {
+        ChangeSetReader reader = ChangeSetReaderFactory.getInstance().getChangeSetReader(changeLogFile);
+        if (reader == null) {
+            throw new IllegalStateException("No reader found for Mongeez change log "
+                    + changeLogFile.getDescription());
+        }
+        return reader.getChangeSets(changeLogFile);
+    }
+
+    /**
+     * Determine whether the given change log file is a bulk write or index change log,
+     * which are cheap to read and therefore neither cached nor compiled.
+     * @param changeLogFile the change log file
+     * @return whether the file is read directly
+     */
+    static boolean isReferenced(Resource changeLogFile) {
+        return BulkWriteChangeSetReader.supports(changeLogFile) || IndexChangeSetReader.supports(changeLogFile);
+    }
+
+    static List<ChangeSet> readReferenced(Resource changeLogFile) {
+        if (BulkWriteChangeSetReader.supports(changeLogFile)) {
+            return Collections.singletonList(BulkWriteChangeSetReader.read(changeLogFile));
+        }
+        return Collections.singletonList(IndexChangeSetReader.read(changeLogFile));
+    }
+
+    private List<ChangeSet> readCached(Resource changeLogFile) {
+        byte[] digest = ChangeLogFingerprint.digest(changeLogFile);
+        String location = changeLogFile.getDescription();
+        List<ChangeSet> changeSets = this.cache.get(location, digest);
+        if (changeSets == null) {
+            changeSets = parse(changeLogFile);
+            this.cache.put(location, digest, changeSets);
+        }
+        return changeSets;
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.Resource;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The change logs of a main change log file. Included files, fingerprint and change sets
+ * are each computed at most once, since change logs do not change while the application
+ * is running, and can be shared by migrators of several databases. If the change logs
+ * have been compiled at build time, they are loaded from the {@link ChangeLogIndex}
+ * unless its fingerprint shows that the change logs have changed since.
+ *
+ * @author Timo Kockert
+ */
+class ChangeLogs {
+
+    private final Resource file;
+
+    private final ChangeLogReader changeLogReader;
+
+    private static final Log logger = LogFactory.getLog(ChangeLogs.class);
+
+    private final boolean indexRequired;
+
+    private ChangeLogIndex index;
+
+    private boolean indexVerified;
+
+    private List<Resource> files;
+
+    private String fingerprint;
+
+    private List<ChangeSet> changeSets;
+
+    private final Map<ChangeSetKey, String> checksums = new HashMap<>();
+
+    ChangeLogs(Resource file, ChangeLogReader changeLogReader) {
+        this(file, changeLogReader, null, false);
+    }
+
+    /**
+     * Create change logs that are loaded from the given index instead of being resolved
+     * and parsed.
+     * @param file the main change log
+     * @param changeLogReader the reader for change logs
+     * @param index the index compiled from the main change log or {@code null}
+     * @param indexRequired whether to fail instead of parsing the change logs if the
+     * index is stale
+     */
+    ChangeLogs(Resource file, ChangeLogReader changeLogReader, ChangeLogIndex index, boolean indexRequired) {
+        this.file = file;
+        this.changeLogReader = changeLogReader;
+        this.index = index;
+        this.indexRequired = indexRequired;
+    }
+
+    /**
+     * Return the index unless the change logs have changed since it has been compiled,
+     * which the index verifies once by its fingerprint. Hashing the change logs is cheap
+     * compared to parsing them.
+     * @return the index or {@code null}
+     * @throws IllegalStateException if the index is stale but required
+     */
+    private ChangeLogIndex getIndex() {
+        if (this.index == null || this.indexVerified) {
+            return this.index;
+        }
+        List<Resource> files = new ArrayList<>();
+        files.add(this.file);
+        files.addAll(this.index.getFiles());
+        String fingerprint;
+        try {
+            fingerprint = ChangeLogFingerprint.compute(files);
+        } catch (UncheckedIOException ex) {
+            // an included file has been removed
+            fingerprint = null;
+        }
+        if (this.index.getFingerprint().equals(fingerprint)) {
+            this.fingerprint = fingerprint;
+        } else {
+            String msg = "Mongeez change log index compiled from '" + this.index.getLocation()
+                    + "' is stale, the change logs have changed since it has been compiled";
+            if (this.indexRequired) {
+                throw new IllegalStateException(msg + ". Compile them again with the Mongeez Maven plugin.");
+            }
+            logger.warn(msg + ", parsing them instead");
+            this.index = null;
+        }
+        this.indexVerified = true;
+        return this.index;
+    }
+
+    /**
+     * Return the change log files included by the main change log.
+     * @return the included change log files
+     */
+    synchronized List<Resource> getFiles() {
+        if (this.files == null) {
+            ChangeLogIndex index = getIndex();
+            this.files = Collections.unmodifiableList(index != null ? index.getFiles()
+                    : this.changeLogReader.resolveChangeLogFiles(this.file));
+        }
+        return this.files;
+    }
+
+    /**
+     * Return the fingerprint over the main change log and all included files.
+     * @return the change log fingerprint
+     */
+    synchronized String getFingerprint() {
+        if (this.fingerprint == null && getIndex() != null) {
+            this.fingerprint = this.index.getFingerprint();
+        }
+        if (this.fingerprint == null) {
+            List<Resource> files = new ArrayList<>(getFiles().size() + 1);
+            files.add(this.file);
+            files.addAll(getFiles());
+            this.fingerprint = ChangeLogFingerprint.compute(files);
+        }
+        return this.fingerprint;
+    }
+
+    /**
+     * Return all change sets of all change log files.
+     * @return all change sets
+     */
+    synchronized List<ChangeSet> getChangeSets() {
+        if (this.changeSets == null) {
+            ChangeLogIndex index = getIndex();
+            this.changeSets = Collections.unmodifiableList(index != null ? index.getChangeSets()
+                    : this.changeLogReader.read(getFiles()));
+        }
+        return this.changeSets;
+    }
+
+    /**
+     * Return the checksum of the given change set, either from the index or computed at
+     * most once.
+     * @param changeSet the change set
+     * @return the checksum of the change set
+     */
+    synchronized String getChecksum(ChangeSet changeSet) {
+        ChangeSetKey key = ChangeSetKey.of(changeSet);
+        ChangeLogIndex index = getIndex();
+        String checksum = index != null ? index.getChecksums().get(key) : null;
+        if (checksum == null) {
+            checksum = this.checksums.computeIfAbsent(key, (k) -> ChangeSetChecksum.compute(changeSet));
+        }
+        return checksum;
+    }
+
+}
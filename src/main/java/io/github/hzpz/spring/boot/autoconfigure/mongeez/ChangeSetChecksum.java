@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.commands.Script;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes a checksum over the content of a single change set, so that changes to
+ * already executed change sets can be detected.
+ * <p>
+ * Bulk write change sets are checksummed by their header and the length of their data
+ * file: hashing the documents would read the whole, possibly large, data file on every
+ * startup. Modifications that keep the length of the data file are not detected.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeSetChecksum {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private ChangeSetChecksum() {
+    }
+
+    static String compute(ChangeSet changeSet) {
+        MessageDigest digest = newDigest();
+        if (changeSet instanceof BulkWriteChangeSet) {
+            BulkWriteChangeSet bulkWrite = (BulkWriteChangeSet) changeSet;
+            update(digest, bulkWrite.getCollection());
+            update(digest, String.valueOf(bulkWrite.isUpsert()));
+            update(digest, String.valueOf(contentLength(bulkWrite.getResource())));
+        } else if (changeSet instanceof IndexChangeSet) {
+            for (IndexChangeSet.Index index : ((IndexChangeSet) changeSet).getIndexes()) {
+                update(digest, index.getCollection());
+                update(digest, index.getKeys().toString());
+                update(digest, index.getOptions().toString());
+            }
+        } else {
+            for (Script command : changeSet.getCommands()) {
+                update(digest, command.getBody() != null ? command.getBody().trim() : "");
+            }
+        }
+        return ChangeLogFingerprint.toHex(digest.digest());
+    }
+
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez change log " + resource.getDescription(), ex);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ALGORITHM + " is not available", ex);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown if change sets have been modified after they have been executed.
+ *
+ * @author Timo Kockert
+ */
+public class ChangeSetChecksumMismatchException extends IllegalStateException {
+
+    private final List<Mismatch> mismatches;
+
+    ChangeSetChecksumMismatchException(List<Mismatch> mismatches) {
+        super(mismatches.size() + " Mongeez change sets have been modified after they have been executed: "
+                + mismatches);
+        this.mismatches = Collections.unmodifiableList(mismatches);
+    }
+
+    public List<Mismatch> getMismatches() {
+        return this.mismatches;
+    }
+
+    /**
+     * A change set whose checksum differs from the one recorded when it was executed.
+     */
+    public static final class Mismatch {
+
+        private final String file;
+
+        private final String changeId;
+
+        private final String author;
+
+        private final String recordedChecksum;
+
+        private final String actualChecksum;
+
+        Mismatch(ChangeSetKey key, String recordedChecksum, String actualChecksum) {
+            this.file = key.getFile();
+            this.changeId = key.getChangeId();
+            this.author = key.getAuthor();
+            this.recordedChecksum = recordedChecksum;
+            this.actualChecksum = actualChecksum;
+        }
+
+        public String getFile() {
+            return this.file;
+        }
+
+        public String getChangeId() {
+            return this.changeId;
+        }
+
+        public String getAuthor() {
+            return this.author;
+        }
+
+        public String getRecordedChecksum() {
+            return this.recordedChecksum;
+        }
+
+        public String getActualChecksum() {
+            return this.actualChecksum;
+        }
+
+        @Override
+        public String toString() {
+            return this.changeId + " by " + this.author + " in " + this.file;
+        }
+
+    }
+
+}
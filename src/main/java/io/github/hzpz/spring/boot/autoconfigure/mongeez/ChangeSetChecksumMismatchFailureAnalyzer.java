@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.springframework.boot.diagnostics.AbstractFailureAnalyzer;
+import org.springframework.boot.diagnostics.FailureAnalysis;
+import org.springframework.boot.diagnostics.FailureAnalyzer;
+
+/**
+ * {@link FailureAnalyzer} for {@link ChangeSetChecksumMismatchException}.
+ *
+ * @author Timo Kockert
+ */
+class ChangeSetChecksumMismatchFailureAnalyzer extends AbstractFailureAnalyzer<ChangeSetChecksumMismatchException> {
+
+    @Override
+    protected FailureAnalysis analyze(Throwable rootFailure, ChangeSetChecksumMismatchException cause) {
+        StringBuilder description = new StringBuilder("The following Mongeez change sets have been modified after "
+                + "they have been executed:");
+        for (ChangeSetChecksumMismatchException.Mismatch mismatch : cause.getMismatches()) {
+            description.append(String.format("%n    - %s by %s in %s (recorded checksum %s, actual checksum %s)",
+                    mismatch.getChangeId(), mismatch.getAuthor(), mismatch.getFile(),
+                    mismatch.getRecordedChecksum(), mismatch.getActualChecksum()));
+        }
+        String action = "Revert the modifications and add new change sets instead. If a change set must be modified, "
+                + "set runAlways or remove its execution from the Mongeez collection. Set mongeez.validate-checksums "
+                + "to false to disable this check. Note that bulk write change sets are only checksummed by their "
+                + "header and the length of their data file.";
+        return new FailureAnalysis(description.toString(), action, cause);
+    }
+
+}
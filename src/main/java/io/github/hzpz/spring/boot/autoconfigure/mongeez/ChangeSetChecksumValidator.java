@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares the checksums of change sets with the checksums recorded when they were
+ * executed. Both sides are looked up by key, so the comparison takes time linear in the
+ * number of change sets, without any additional queries.
+ *
+ * @author Timo Kockert
+ */
+class ChangeSetChecksumValidator {
+
+    private final Function<ChangeSet, String> checksums;
+
+    private final boolean resourcePath;
+
+    private final Map<ChangeSetKey, String> missingChecksums = new LinkedHashMap<>();
+
+    /**
+     * Create a new validator.
+     * @param checksums computes the checksum of a change set
+     * @param resourcePath whether the keys of the recorded executions include the
+     * resource path
+     */
+    ChangeSetChecksumValidator(Function<ChangeSet, String> checksums, boolean resourcePath) {
+        this.checksums = checksums;
+        this.resourcePath = resourcePath;
+    }
+
+    /**
+     * Validate the given change sets against their executions.
+     * @param changeSets the change sets of the change logs
+     * @param executions the recorded executions
+     * @throws ChangeSetChecksumMismatchException if any executed change set has changed
+     */
+    void validate(List<ChangeSet> changeSets, List<ChangeSetExecution> executions) {
+        Map<ChangeSetKey, ChangeSetExecution> executionsByKey = new HashMap<>(executions.size() * 2);
+        for (ChangeSetExecution execution : executions) {
+            executionsByKey.put(execution.getKey(), execution);
+        }
+        List<ChangeSetChecksumMismatchException.Mismatch> mismatches = new ArrayList<>();
+        for (ChangeSet changeSet : changeSets) {
+            ChangeSetKey key = ChangeSetKey.of(changeSet, this.resourcePath);
+            ChangeSetExecution execution = executionsByKey.get(key);
+            if (execution == null || changeSet.isRunAlways()) {
+                continue;
+            }
+            String checksum = this.checksums.apply(changeSet);
+            if (execution.getChecksum() == null) {
+                this.missingChecksums.put(key, checksum);
+            } else if (!execution.getChecksum().equals(checksum)) {
+                mismatches.add(new ChangeSetChecksumMismatchException.Mismatch(key, execution.getChecksum(),
+                        checksum));
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            throw new ChangeSetChecksumMismatchException(mismatches);
+        }
+    }
+
+    /**
+     * Return the checksums of executed change sets that have been recorded without a
+     * checksum.
+     * @return the missing checksums by change set
+     */
+    Map<ChangeSetKey, String> getMissingChecksums() {
+        return this.missingChecksums;
+    }
+
+}
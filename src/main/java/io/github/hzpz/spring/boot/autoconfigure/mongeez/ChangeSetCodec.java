@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.commands.Script;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary representation of parsed change sets.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeSetCodec {
+
+    private static final int MAGIC = 0x4d5a4353;
+
+    private static final int VERSION = 1;
+
+    private static final int NULL_LENGTH = -1;
+
+    private ChangeSetCodec() {
+    }
+
+    static byte[] encode(List<ChangeSet> changeSets) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(changeSets.size());
+            for (ChangeSet changeSet : changeSets) {
+                writeString(output, changeSet.getFile());
+                writeString(output, changeSet.getResourcePath());
+                writeString(output, changeSet.getChangeId());
+                writeString(output, changeSet.getAuthor());
+                writeString(output, changeSet.getContexts());
+                output.writeBoolean(changeSet.isRunAlways());
+                output.writeBoolean(changeSet.isFailOnError());
+                List<Script> commands = changeSet.getCommands();
+                output.writeInt(commands.size());
+                for (Script command : commands) {
+                    writeString(output, command.getBody());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode change sets previously encoded by {@link #encode(List)}.
+     * @param buffer the encoded change sets
+     * @return the decoded change sets
+     * @throws IllegalArgumentException if the buffer does not contain change sets
+     * encoded by this version of the codec
+     */
+    static List<ChangeSet> decode(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("Unsupported change set encoding");
+            }
+            int count = readCount(buffer);
+            List<ChangeSet> changeSets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ChangeSet changeSet = new ChangeSet();
+                changeSet.setFile(readString(buffer));
+                changeSet.setResourcePath(readString(buffer));
+                changeSet.setChangeId(readString(buffer));
+                changeSet.setAuthor(readString(buffer));
+                changeSet.setContexts(readString(buffer));
+                changeSet.setRunAlways(buffer.get() != 0);
+                changeSet.setFailOnError(buffer.get() != 0);
+                int commands = readCount(buffer);
+                for (int j = 0; j < commands; j++) {
+                    Script script = new Script();
+                    script.setBody(readString(buffer));
+                    changeSet.add(script);
+                }
+                changeSets.add(changeSet);
+            }
+            return changeSets;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated change set encoding", ex);
+        }
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt change set encoding: invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the number of elements that follow, each of which takes at least one byte.
+     * @param buffer the encoded change sets
+     * @return the number of elements
+     */
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupt change set encoding: invalid count " + count);
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * Record of an executed change set in the Mongeez collection.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeSetExecution {
+
+    private final ChangeSetKey key;
+
+    private final Instant date;
+
+    private final Duration duration;
+
+    private final String checksum;
+
+    ChangeSetExecution(ChangeSetKey key, Instant date, Duration duration, String checksum) {
+        this.key = key;
+        this.date = date;
+        this.duration = duration;
+        this.checksum = checksum;
+    }
+
+    ChangeSetKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * Return when the change set was executed.
+     * @return the execution date or {@code null} if unknown
+     */
+    Instant getDate() {
+        return this.date;
+    }
+
+    /**
+     * Return how long the change set took to execute. Only recorded by this starter,
+     * not by Mongeez itself.
+     * @return the execution duration or {@code null} if unknown
+     */
+    Duration getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Return the checksum of the change set at the time it was executed. Only recorded
+     * by this starter, not by Mongeez itself.
+     * @return the checksum or {@code null} if unknown
+     */
+    String getChecksum() {
+        return this.checksum;
+    }
+
+    static Instant toInstant(Object date) {
+        if (date instanceof Date) {
+            return ((Date) date).toInstant();
+        }
+        if (date instanceof String) {
+            // Mongeez stores the date as string
+            try {
+                return OffsetDateTime.parse((String) date).toInstant();
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    static Duration toDuration(Object millis) {
+        return millis instanceof Number ? Duration.ofMillis(((Number) millis).longValue()) : null;
+    }
+
+}
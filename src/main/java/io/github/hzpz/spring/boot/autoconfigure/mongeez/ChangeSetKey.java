@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Identifies a change set the same way the Mongeez collection does. Mongeez only
+ * includes the resource path if the configuration record of its collection enables it.
+ *
+ * @author Timo Kockert
+ */
+final class ChangeSetKey {
+
+    private final String file;
+
+    private final String changeId;
+
+    private final String author;
+
+    private final String resourcePath;
+
+    ChangeSetKey(String file, String changeId, String author) {
+        this(file, changeId, author, null);
+    }
+
+    ChangeSetKey(String file, String changeId, String author, String resourcePath) {
+        this.file = file;
+        this.changeId = changeId;
+        this.author = author;
+        this.resourcePath = resourcePath;
+    }
+
+    static ChangeSetKey of(ChangeSet changeSet) {
+        return of(changeSet, true);
+    }
+
+    /**
+     * Return the key of the given change set.
+     * @param changeSet the change set
+     * @param resourcePath whether the resource path is part of the key
+     * @return the key
+     */
+    static ChangeSetKey of(ChangeSet changeSet, boolean resourcePath) {
+        return new ChangeSetKey(changeSet.getFile(), changeSet.getChangeId(), changeSet.getAuthor(),
+                resourcePath ? changeSet.getResourcePath() : null);
+    }
+
+    /**
+     * Return this key without the resource path, e.g. to match executions recorded in
+     * another database.
+     * @return the key without the resource path
+     */
+    ChangeSetKey withoutResourcePath() {
+        return this.resourcePath != null ? new ChangeSetKey(this.file, this.changeId, this.author) : this;
+    }
+
+    String getFile() {
+        return this.file;
+    }
+
+    String getChangeId() {
+        return this.changeId;
+    }
+
+    String getAuthor() {
+        return this.author;
+    }
+
+    String getResourcePath() {
+        return this.resourcePath;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ChangeSetKey other = (ChangeSetKey) obj;
+        return ObjectUtils.nullSafeEquals(this.file, other.file)
+                && ObjectUtils.nullSafeEquals(this.changeId, other.changeId)
+                && ObjectUtils.nullSafeEquals(this.author, other.author)
+                && ObjectUtils.nullSafeEquals(this.resourcePath, other.resourcePath);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = ObjectUtils.nullSafeHashCode(this.file);
+        result = 31 * result + ObjectUtils.nullSafeHashCode(this.changeId);
+        result = 31 * result + ObjectUtils.nullSafeHashCode(this.author);
+        result = 31 * result + ObjectUtils.nullSafeHashCode(this.resourcePath);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        String key = this.file + ":" + this.changeId + ":" + this.author;
+        return this.resourcePath != null ? key + " (" + this.resourcePath + ")" : key;
+    }
+
+}
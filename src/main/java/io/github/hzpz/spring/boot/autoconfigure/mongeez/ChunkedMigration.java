@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+
+import java.util.List;
+
+/**
+ * Data migration implemented in Java that processes the documents of a collection in
+ * chunks ordered by {@code _id}. Beans of this type are executed after all change sets
+ * of the change logs.
+ * <p>
+ * After each chunk, a checkpoint is saved, so an interrupted migration resumes after the
+ * last processed document on the next start instead of beginning from scratch. As a
+ * consequence, processing a chunk should be idempotent, since a chunk may be processed
+ * again if the application stops before its checkpoint is saved. The {@code _id} values
+ * of all matching documents must be of the same type. Once all documents have been
+ * processed, the migration is recorded like a change set and not executed again.
+ *
+ * @author Timo Kockert
+ */
+public interface ChunkedMigration {
+
+    /**
+     * Return the unique id of this migration, used as change id.
+     * @return the id of this migration
+     */
+    String getId();
+
+    /**
+     * Return the author of this migration.
+     * @return the author of this migration
+     */
+    default String getAuthor() {
+        return "mongeez";
+    }
+
+    /**
+     * Return the name of the collection to iterate over.
+     * @return the collection name
+     */
+    String getCollection();
+
+    /**
+     * Return the query that selects the documents to process.
+     * @return the query, matches all documents by default
+     */
+    default DBObject getQuery() {
+        return new BasicDBObject();
+    }
+
+    /**
+     * Process the next chunk of documents.
+     * @param database the database being migrated
+     * @param documents the documents of the chunk in ascending {@code _id} order
+     */
+    void migrate(DB database, List<DBObject> documents);
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mongeez.commands.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link ChunkedMigration ChunkedMigrations}, saving a checkpoint in the
+ * {@code mongeezCheckpoints} collection after each chunk and throttling to a maximum
+ * number of documents per second.
+ *
+ * @author Timo Kockert
+ */
+class ChunkedMigrationRunner {
+
+    static final String COLLECTION_NAME = "mongeezCheckpoints";
+
+    /**
+     * Value of the file field of recorded chunked migrations.
+     */
+    static final String FILE = "ChunkedMigration";
+
+    private static final String ID = "_id";
+
+    private static final String LAST_ID = "lastId";
+
+    private static final String PROCESSED = "processed";
+
+    private static final String COMPLETED = "completed";
+
+    private static final String DATE = "date";
+
+    private static final Log logger = LogFactory.getLog(ChunkedMigrationRunner.class);
+
+    private final DB database;
+
+    private final DBCollection checkpoints;
+
+    private int batchSize = MongeezProperties.Chunked.DEFAULT_BATCH_SIZE;
+
+    private int maxDocumentsPerSecond;
+
+    ChunkedMigrationRunner(DB database) {
+        this.database = database;
+        this.checkpoints = database.getCollection(COLLECTION_NAME);
+    }
+
+    void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    void setMaxDocumentsPerSecond(int maxDocumentsPerSecond) {
+        this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+    }
+
+    /**
+     * Process all remaining documents of the given migration, starting after the last
+     * checkpoint.
+     * @param migration the migration
+     * @return the total number of documents processed, including those processed
+     * before a restart
+     */
+    long run(ChunkedMigration migration) {
+        DBObject checkpoint = this.checkpoints.findOne(new BasicDBObject(ID, migration.getId()));
+        Object lastId = checkpoint != null ? checkpoint.get(LAST_ID) : null;
+        long processed = checkpoint != null ? ((Number) checkpoint.get(PROCESSED)).longValue() : 0;
+        if (lastId != null) {
+            logger.info("Resuming chunked migration " + migration.getId() + " after " + processed + " documents");
+        }
+        DBCollection collection = this.database.getCollection(migration.getCollection());
+        Throttle throttle = new Throttle(this.maxDocumentsPerSecond);
+        List<DBObject> chunk = findChunk(collection, migration.getQuery(), lastId);
+        while (!chunk.isEmpty()) {
+            migration.migrate(this.database, chunk);
+            lastId = chunk.get(chunk.size() - 1).get(ID);
+            processed += chunk.size();
+            saveCheckpoint(migration, lastId, processed, false);
+            logger.debug("Chunked migration " + migration.getId() + " has processed " + processed + " documents");
+            throttle.acquire(chunk.size());
+            chunk = findChunk(collection, migration.getQuery(), lastId);
+        }
+        saveCheckpoint(migration, lastId, processed, true);
+        return processed;
+    }
+
+    private List<DBObject> findChunk(DBCollection collection, DBObject query, Object lastId) {
+        DBObject chunkQuery = query;
+        if (lastId != null) {
+            chunkQuery = new BasicDBObject("$and", Arrays.asList(query,
+                    new BasicDBObject(ID, new BasicDBObject("$gt", lastId))));
+        }
+        List<DBObject> chunk = new ArrayList<>(this.batchSize);
+        try (DBCursor cursor = collection.find(chunkQuery).sort(new BasicDBObject(ID, 1)).limit(this.batchSize)) {
+            for (DBObject document : cursor) {
+                chunk.add(document);
+            }
+        }
+        return chunk;
+    }
+
+    private void saveCheckpoint(ChunkedMigration migration, Object lastId, long processed, boolean completed) {
+        DBObject update = new BasicDBObject("$set", new BasicDBObject(LAST_ID, lastId)
+                .append(PROCESSED, processed)
+                .append(COMPLETED, completed)
+                .append(DATE, new Date()));
+        this.checkpoints.update(new BasicDBObject(ID, migration.getId()), update, true, false);
+    }
+
+    /**
+     * Create the change set a chunked migration is recorded as.
+     * @param migration the migration
+     * @return the change set
+     */
+    static ChangeSet toChangeSet(ChunkedMigration migration) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile(FILE);
+        changeSet.setChangeId(migration.getId());
+        changeSet.setAuthor(migration.getAuthor());
+        return changeSet;
+    }
+
+    /**
+     * Limits the rate of processed documents by sleeping after a chunk if the chunks
+     * processed so far were faster than allowed.
+     */
+    static final class Throttle {
+
+        private final int maxDocumentsPerSecond;
+
+        private final long start = System.nanoTime();
+
+        private long documents;
+
+        Throttle(int maxDocumentsPerSecond) {
+            this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+        }
+
+        void acquire(int documents) {
+            if (this.maxDocumentsPerSecond <= 0) {
+                return;
+            }
+            record(documents);
+            long delay = delayNanos(System.nanoTime() - this.start);
+            if (delay <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while throttling chunked migration", ex);
+            }
+        }
+
+        void record(int documents) {
+            this.documents += documents;
+        }
+
+        long delayNanos(long elapsedNanos) {
+            long expected = TimeUnit.SECONDS.toNanos(this.documents) / this.maxDocumentsPerSecond;
+            return expected - elapsedNanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link MigrationListener} that delegates to a list of listeners.
+ *
+ * @author Timo Kockert
+ */
+class CompositeMigrationListener implements MigrationListener {
+
+    private final List<MigrationListener> listeners;
+
+    CompositeMigrationListener(List<MigrationListener> listeners) {
+        this.listeners = new ArrayList<>(listeners);
+    }
+
+    @Override
+    public void migrationStarted(String database) {
+        this.listeners.forEach((listener) -> listener.migrationStarted(database));
+    }
+
+    @Override
+    public void lockAcquired(String database, Duration waitTime) {
+        this.listeners.forEach((listener) -> listener.lockAcquired(database, waitTime));
+    }
+
+    @Override
+    public void changeLogsParsed(String database, int changeSets, Duration parseTime) {
+        this.listeners.forEach((listener) -> listener.changeLogsParsed(database, changeSets, parseTime));
+    }
+
+    @Override
+    public void executedChangeSetsLoaded(String database, int executedChangeSets, Duration lookupTime) {
+        this.listeners.forEach((listener) ->
+                listener.executedChangeSetsLoaded(database, executedChangeSets, lookupTime));
+    }
+
+    @Override
+    public void changeSetSkipped(String database, ChangeSet changeSet) {
+        this.listeners.forEach((listener) -> listener.changeSetSkipped(database, changeSet));
+    }
+
+    @Override
+    public void changeSetExecuted(String database, ChangeSet changeSet, Duration duration) {
+        this.listeners.forEach((listener) -> listener.changeSetExecuted(database, changeSet, duration));
+    }
+
+    @Override
+    public void documentsAffected(String database, ChangeSet changeSet, long documents) {
+        this.listeners.forEach((listener) -> listener.documentsAffected(database, changeSet, documents));
+    }
+
+    @Override
+    public void changeSetFailed(String database, ChangeSet changeSet, Duration duration, Throwable failure) {
+        this.listeners.forEach((listener) -> listener.changeSetFailed(database, changeSet, duration, failure));
+    }
+
+    @Override
+    public void indexBuildProgress(String database, ChangeSet changeSet, String collection, String index,
+                                   long done, long total) {
+        this.listeners.forEach((listener) ->
+                listener.indexBuildProgress(database, changeSet, collection, index, done, total));
+    }
+
+    @Override
+    public void migrationFinished(String database, Duration duration, Throwable failure) {
+        this.listeners.forEach((listener) -> listener.migrationFinished(database, duration, failure));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.DBObject;
+import org.mongeez.commands.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ChangeSet} that declares indexes to create instead of executing scripts.
+ *
+ * @author Timo Kockert
+ * @see IndexChangeSetReader
+ * @see IndexChangeSetBuilder
+ */
+class IndexChangeSet extends ChangeSet {
+
+    private final List<Index> indexes = new ArrayList<>();
+
+    List<Index> getIndexes() {
+        return this.indexes;
+    }
+
+    void addIndex(Index index) {
+        this.indexes.add(index);
+    }
+
+    /**
+     * An index of a collection.
+     */
+    static final class Index {
+
+        private final String collection;
+
+        private final DBObject keys;
+
+        private final DBObject options;
+
+        Index(String collection, DBObject keys, DBObject options) {
+            this.collection = collection;
+            this.keys = keys;
+            this.options = options;
+        }
+
+        String getCollection() {
+            return this.collection;
+        }
+
+        DBObject getKeys() {
+            return this.keys;
+        }
+
+        DBObject getOptions() {
+            return this.options;
+        }
+
+        /**
+         * Return the name of the index, either as configured or as generated by MongoDB.
+         * @return the index name
+         */
+        String getName() {
+            Object name = this.options.get("name");
+            if (name != null) {
+                return name.toString();
+            }
+            StringBuilder generated = new StringBuilder();
+            for (String key : this.keys.keySet()) {
+                if (generated.length() > 0) {
+                    generated.append('_');
+                }
+                generated.append(key).append('_').append(this.keys.get(key));
+            }
+            return generated.toString();
+        }
+
+    }
+
+}
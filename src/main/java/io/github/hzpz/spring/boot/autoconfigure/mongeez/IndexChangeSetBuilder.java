@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the indexes of {@link IndexChangeSet IndexChangeSets}.
+ * <p>
+ * Indexes are skipped if the collection already has an index with the same keys.
+ * Unless the options say otherwise, indexes are built in the background so the
+ * collection remains available. Servers since MongoDB 4.2 ignore this option and
+ * always use their hybrid index build. While an index is built, {@code currentOp} is
+ * polled to report the progress of the build.
+ *
+ * @author Timo Kockert
+ */
+class IndexChangeSetBuilder {
+
+    private static final Log logger = LogFactory.getLog(IndexChangeSetBuilder.class);
+
+    private static final String BACKGROUND = "background";
+
+    private final DB database;
+
+    private final MigrationListener listener;
+
+    private boolean background = true;
+
+    private Duration progressInterval = Duration.ofSeconds(10);
+
+    IndexChangeSetBuilder(DB database, MigrationListener listener) {
+        this.database = database;
+        this.listener = listener;
+    }
+
+    void setBackground(boolean background) {
+        this.background = background;
+    }
+
+    void setProgressInterval(Duration progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Create all indexes of the given change set that do not exist yet.
+     * @param changeSet the change set
+     * @return the number of indexes created
+     */
+    int build(IndexChangeSet changeSet) {
+        int created = 0;
+        for (IndexChangeSet.Index index : changeSet.getIndexes()) {
+            DBCollection collection = this.database.getCollection(index.getCollection());
+            if (hasEquivalentIndex(collection, index.getKeys())) {
+                logger.info("Index " + index.getKeys() + " on " + index.getCollection() + " already exists, skipping");
+                continue;
+            }
+            build(changeSet, collection, index);
+            created++;
+        }
+        return created;
+    }
+
+    /**
+     * Create all indexes of the given change set on a separate thread.
+     * @param changeSet the change set
+     * @return a future that completes once all indexes have been created
+     */
+    CompletableFuture<Integer> buildAsync(IndexChangeSet changeSet) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("mongeez-index-"));
+        try {
+            return CompletableFuture.supplyAsync(() -> build(changeSet), executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void build(IndexChangeSet changeSet, DBCollection collection, IndexChangeSet.Index index) {
+        DBObject options = new BasicDBObject(index.getOptions().toMap());
+        if (this.background && !options.containsField(BACKGROUND)) {
+            options.put(BACKGROUND, true);
+        }
+        logger.info("Building index " + index.getName() + " on " + index.getCollection());
+        long start = System.nanoTime();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(progressThreadFactory());
+        progress.scheduleWithFixedDelay(() -> reportProgress(changeSet, index),
+                this.progressInterval.toMillis(), this.progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            collection.createIndex(index.getKeys(), options);
+        } finally {
+            progress.shutdownNow();
+        }
+        logger.info("Built index " + index.getName() + " on " + index.getCollection() + " in "
+                + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+    }
+
+    private static CustomizableThreadFactory progressThreadFactory() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mongeez-index-progress-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private void reportProgress(IndexChangeSet changeSet, IndexChangeSet.Index index) {
+        try {
+            for (DBObject operation : findIndexBuilds(index.getCollection())) {
+                DBObject progress = (DBObject) operation.get("progress");
+                if (progress == null) {
+                    continue;
+                }
+                long done = ((Number) progress.get("done")).longValue();
+                long total = ((Number) progress.get("total")).longValue();
+                logger.info("Building index " + index.getName() + " on " + index.getCollection() + ": " + done
+                        + "/" + total + (total > 0 ? " (" + (done * 100 / total) + "%)" : ""));
+                this.listener.indexBuildProgress(this.database.getName(), changeSet, index.getCollection(),
+                        index.getName(), done, total);
+            }
+        } catch (RuntimeException ex) {
+            // e.g. missing privileges to run currentOp, does not affect the index build
+            logger.debug("Cannot determine progress of index build", ex);
+        }
+    }
+
+    private List<DBObject> findIndexBuilds(String collection) {
+        CommandResult result = this.database.getSisterDB("admin").command(new BasicDBObject("currentOp", 1)
+                .append("command.createIndexes", collection));
+        result.throwOnError();
+        List<DBObject> operations = new ArrayList<>();
+        Object inProgress = result.get("inprog");
+        if (inProgress instanceof List) {
+            for (Object operation : (List<?>) inProgress) {
+                String namespace = String.valueOf(((DBObject) operation).get("ns"));
+                if (namespace.startsWith(this.database.getName() + ".")) {
+                    operations.add((DBObject) operation);
+                }
+            }
+        }
+        return operations;
+    }
+
+    private static boolean hasEquivalentIndex(DBCollection collection, DBObject keys) {
+        for (DBObject index : collection.getIndexInfo()) {
+            if (sameKeys((DBObject) index.get("key"), keys)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compare index keys including their order. Numeric directions are compared by
+     * value since the server may return them with a different type.
+     * @param existing the keys of an existing index
+     * @param requested the requested keys
+     * @return whether the keys are equivalent
+     */
+    static boolean sameKeys(DBObject existing, DBObject requested) {
+        if (existing == null || existing.keySet().size() != requested.keySet().size()) {
+            return false;
+        }
+        Iterator<String> existingKeys = existing.keySet().iterator();
+        for (String key : requested.keySet()) {
+            String existingKey = existingKeys.next();
+            if (!key.equals(existingKey) || !sameDirection(existing.get(existingKey), requested.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameDirection(Object existing, Object requested) {
+        if (existing instanceof Number && requested instanceof Number) {
+            return ((Number) existing).doubleValue() == ((Number) requested).doubleValue();
+        }
+        return String.valueOf(existing).equals(String.valueOf(requested));
+    }
+
+}
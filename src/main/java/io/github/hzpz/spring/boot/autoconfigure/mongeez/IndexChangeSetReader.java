@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads {@link IndexChangeSet IndexChangeSets} from JSON files ending with
+ * {@code .indexes.json}, e.g.
+ * <pre class="code">
+ * {
+ *   "changeId": "userIndexes",
+ *   "author": "hzpz",
+ *   "indexes": [
+ *     {"collection": "users", "keys": {"email": 1}, "options": {"unique": true}}
+ *   ]
+ * }
+ * </pre>
+ * The options are passed to {@code createIndexes} as they are. Optionally,
+ * {@code "contexts"} restricts the change set to the given Mongeez contexts.
+ *
+ * @author Timo Kockert
+ */
+final class IndexChangeSetReader {
+
+    private static final String EXTENSION = ".indexes.json";
+
+    private IndexChangeSetReader() {
+    }
+
+    static boolean supports(Resource resource) {
+        String filename = resource.getFilename();
+        return filename != null && filename.endsWith(EXTENSION);
+    }
+
+    static IndexChangeSet read(Resource resource) {
+        BasicDBObject document = BasicDBObject.parse(readContent(resource));
+        IndexChangeSet changeSet = new IndexChangeSet();
+        changeSet.setFile(resource.getFilename());
+        changeSet.setChangeId(required(document, "changeId", resource));
+        changeSet.setAuthor(required(document, "author", resource));
+        if (document.containsField("contexts")) {
+            changeSet.setContexts(document.getString("contexts"));
+        }
+        Object indexes = document.get("indexes");
+        if (!(indexes instanceof List) || ((List<?>) indexes).isEmpty()) {
+            throw new IllegalStateException("Missing 'indexes' in index change set " + resource.getDescription());
+        }
+        for (Object index : (List<?>) indexes) {
+            changeSet.addIndex(readIndex((BasicDBObject) index, resource));
+        }
+        return changeSet;
+    }
+
+    private static IndexChangeSet.Index readIndex(BasicDBObject index, Resource resource) {
+        Object keys = index.get("keys");
+        if (!(keys instanceof DBObject) || ((DBObject) keys).keySet().isEmpty()) {
+            throw new IllegalStateException("Missing 'keys' of index in " + resource.getDescription());
+        }
+        Object options = index.get("options");
+        return new IndexChangeSet.Index(required(index, "collection", resource), (DBObject) keys,
+                options instanceof DBObject ? (DBObject) options : new BasicDBObject());
+    }
+
+    private static String readContent(Resource resource) {
+        try {
+            return FileCopyUtils.copyToString(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez change log " + resource.getDescription(), ex);
+        }
+    }
+
+    private static String required(BasicDBObject document, String field, Resource resource) {
+        String value = document.getString(field);
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalStateException("Missing '" + field + "' in index change set " + resource.getDescription());
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.mongeez.commands.ChangeSet;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MigrationListener} that records Mongeez migrations in a {@link MeterRegistry}.
+ *
+ * @author Timo Kockert
+ */
+public class MicrometerMigrationListener implements MigrationListener {
+
+    private static final String DATABASE = "database";
+
+    private static final String FILE = "file";
+
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry registry;
+
+    private final Map<Tags, IndexBuildProgress> indexBuilds = new ConcurrentHashMap<>();
+
+    public MicrometerMigrationListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void lockAcquired(String database, Duration waitTime) {
+        record("mongeez.lock.wait", "Time spent waiting for the Mongeez lock", Tags.of(DATABASE, database), waitTime);
+    }
+
+    @Override
+    public void changeLogsParsed(String database, int changeSets, Duration parseTime) {
+        record("mongeez.changelog.parse", "Time spent parsing Mongeez change logs",
+                Tags.of(DATABASE, database), parseTime);
+    }
+
+    @Override
+    public void executedChangeSetsLoaded(String database, int executedChangeSets, Duration lookupTime) {
+        record("mongeez.changesets.lookup", "Time spent loading executed change sets",
+                Tags.of(DATABASE, database), lookupTime);
+    }
+
+    @Override
+    public void changeSetSkipped(String database, ChangeSet changeSet) {
+        this.registry.counter("mongeez.changesets", changeSetTags(database, changeSet, "skipped")).increment();
+    }
+
+    @Override
+    public void changeSetExecuted(String database, ChangeSet changeSet, Duration duration) {
+        this.registry.counter("mongeez.changesets", changeSetTags(database, changeSet, "executed")).increment();
+        recordChangeSet(database, changeSet, "executed", duration);
+    }
+
+    @Override
+    public void changeSetFailed(String database, ChangeSet changeSet, Duration duration, Throwable failure) {
+        this.registry.counter("mongeez.changesets", changeSetTags(database, changeSet, "failed")).increment();
+        recordChangeSet(database, changeSet, "failed", duration);
+    }
+
+    @Override
+    public void indexBuildProgress(String database, ChangeSet changeSet, String collection, String index,
+                                   long done, long total) {
+        Tags tags = Tags.of(DATABASE, database, "collection", collection, "index", index);
+        IndexBuildProgress progress = this.indexBuilds.computeIfAbsent(tags, (key) ->
+                this.registry.gauge("mongeez.index.build.progress", key, new IndexBuildProgress(),
+                        IndexBuildProgress::getRatio));
+        progress.update(done, total);
+    }
+
+    @Override
+    public void migrationFinished(String database, Duration duration, Throwable failure) {
+        record("mongeez.migration", "Total time spent migrating",
+                Tags.of(DATABASE, database, OUTCOME, failure == null ? "success" : "failure"), duration);
+    }
+
+    private void recordChangeSet(String database, ChangeSet changeSet, String outcome, Duration duration) {
+        // not tagged with the change set id, which would create a timer per change set and tenant
+        record("mongeez.changeset", "Time spent executing a change set", changeSetTags(database, changeSet, outcome),
+                duration);
+    }
+
+    private static Tags changeSetTags(String database, ChangeSet changeSet, String outcome) {
+        return Tags.of(DATABASE, database, FILE, String.valueOf(changeSet.getFile()), OUTCOME, outcome);
+    }
+
+    private void record(String name, String description, Tags tags, Duration duration) {
+        Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(this.registry)
+                .record(duration);
+    }
+
+    private static final class IndexBuildProgress {
+
+        private volatile double ratio;
+
+        void update(long done, long total) {
+            this.ratio = total > 0 ? (double) done / total : 0;
+        }
+
+        double getRatio() {
+            return this.ratio;
+        }
+
+    }
+
+}
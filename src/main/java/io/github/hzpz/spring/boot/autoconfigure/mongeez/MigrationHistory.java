@@ -0,0 +1,250 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import com.mongodb.MongoException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Access to the capped collection {@code mongeezHistory} that holds a document for each
+ * {@link MigrationRun}, written by {@link MigrationHistoryListener}. Unlike the Mongeez
+ * collection, which records each change set once, the history keeps the durations of
+ * every run, e.g. to predict the duration of a migration or to spot change sets that get
+ * slower as data grows.
+ *
+ * @author Timo Kockert
+ */
+public class MigrationHistory {
+
+    static final String COLLECTION_NAME = "mongeezHistory";
+
+    private static final int NAMESPACE_EXISTS = 48;
+
+    private static final String DATABASE = "database";
+
+    private static final String HOST = "host";
+
+    private static final String VERSION = "version";
+
+    private static final String STARTED_AT = "startedAt";
+
+    private static final String DURATION = "duration";
+
+    private static final String FAILURE = "failure";
+
+    private static final String LOCK_WAIT_TIME = "lockWaitTime";
+
+    private static final String PARSE_TIME = "parseTime";
+
+    private static final String LOOKUP_TIME = "lookupTime";
+
+    private static final String SKIPPED = "skipped";
+
+    private static final String CHANGE_SETS = "changeSets";
+
+    private static final String DOCUMENTS = "documents";
+
+    private static final String FAILED = "failed";
+
+    private final Mongo mongo;
+
+    private final MongeezProperties.History properties;
+
+    private final Set<String> initialized = Collections.synchronizedSet(new HashSet<>());
+
+    public MigrationHistory(Mongo mongo, MongeezProperties.History properties) {
+        this.mongo = mongo;
+        this.properties = properties;
+    }
+
+    /**
+     * Record the given run in the database it has migrated.
+     * @param run the run
+     */
+    public void save(MigrationRun run) {
+        getCollection(run.getDatabase()).insert(toDocument(run));
+    }
+
+    /**
+     * Return the most recent runs against the given database.
+     * @param database the database
+     * @param limit the maximum number of runs
+     * @return the runs, most recent first
+     */
+    public List<MigrationRun> findRuns(String database, int limit) {
+        List<MigrationRun> runs = new ArrayList<>();
+        try (DBCursor cursor = getCollection(database).find()
+                .sort(new BasicDBObject("$natural", -1))
+                .limit(limit)) {
+            for (DBObject document : cursor) {
+                runs.add(toRun(document));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Predict the duration of the given change set from its recorded runs in the given
+     * database, e.g. of a change set that runs always.
+     * @param database the database
+     * @param file the change log file of the change set
+     * @param changeId the id of the change set
+     * @param author the author of the change set
+     * @return the median of the recorded durations or empty if the change set has not
+     * been recorded
+     */
+    public Optional<Duration> estimateDuration(String database, String file, String changeId, String author) {
+        ChangeSetKey key = new ChangeSetKey(file, changeId, author);
+        List<Duration> durations = new ArrayList<>();
+        for (MigrationRun run : findRuns(database, this.properties.getMaxRuns())) {
+            for (MigrationRun.ChangeSetRun changeSet : run.getChangeSets()) {
+                if (!changeSet.isFailed() && changeSet.getKey().equals(key)) {
+                    durations.add(changeSet.getDuration());
+                }
+            }
+        }
+        if (durations.isEmpty()) {
+            return Optional.empty();
+        }
+        Collections.sort(durations);
+        return Optional.of(durations.get(durations.size() / 2));
+    }
+
+    /**
+     * Return the most recent successful execution of each change set recorded in the
+     * history, to estimate durations in a {@link MigrationPlan}.
+     * @param database the database
+     * @return the executions, oldest first
+     */
+    List<ChangeSetExecution> findExecutions(String database) {
+        List<MigrationRun> runs = findRuns(database, this.properties.getMaxRuns());
+        List<ChangeSetExecution> executions = new ArrayList<>();
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            MigrationRun run = runs.get(i);
+            for (MigrationRun.ChangeSetRun changeSet : run.getChangeSets()) {
+                if (!changeSet.isFailed()) {
+                    executions.add(new ChangeSetExecution(changeSet.getKey(), run.getStartedAt(),
+                            changeSet.getDuration(), null));
+                }
+            }
+        }
+        return executions;
+    }
+
+    @SuppressWarnings("deprecation")
+    private DBCollection getCollection(String database) {
+        DB db = this.mongo.getDB(database);
+        if (this.initialized.add(database)) {
+            createCappedCollection(db);
+        }
+        return db.getCollection(COLLECTION_NAME);
+    }
+
+    private void createCappedCollection(DB db) {
+        if (db.collectionExists(COLLECTION_NAME)) {
+            return;
+        }
+        DBObject options = new BasicDBObject("capped", true)
+                .append("size", this.properties.getMaxSize().toBytes())
+                .append("max", this.properties.getMaxRuns());
+        try {
+            db.createCollection(COLLECTION_NAME, options);
+        } catch (MongoException ex) {
+            // created concurrently by another instance
+            if (ex.getCode() != NAMESPACE_EXISTS) {
+                throw ex;
+            }
+        }
+    }
+
+    static DBObject toDocument(MigrationRun run) {
+        BasicDBList changeSets = new BasicDBList();
+        for (MigrationRun.ChangeSetRun changeSet : run.getChangeSets()) {
+            BasicDBObject document = new BasicDBObject(MongeezTrackingCollection.FILE, changeSet.getFile())
+                    .append(MongeezTrackingCollection.CHANGE_ID, changeSet.getChangeId())
+                    .append(MongeezTrackingCollection.AUTHOR, changeSet.getAuthor())
+                    .append(DURATION, changeSet.getDuration().toMillis());
+            if (changeSet.getDocuments() != null) {
+                document.append(DOCUMENTS, changeSet.getDocuments());
+            }
+            if (changeSet.isFailed()) {
+                document.append(FAILED, true);
+            }
+            changeSets.add(document);
+        }
+        BasicDBObject document = new BasicDBObject(DATABASE, run.getDatabase())
+                .append(HOST, run.getHost())
+                .append(VERSION, run.getVersion())
+                .append(STARTED_AT, Date.from(run.getStartedAt()))
+                .append(DURATION, run.getDuration().toMillis())
+                .append(SKIPPED, run.getSkipped())
+                .append(CHANGE_SETS, changeSets);
+        appendMillis(document, LOCK_WAIT_TIME, run.getLockWaitTime());
+        appendMillis(document, PARSE_TIME, run.getParseTime());
+        appendMillis(document, LOOKUP_TIME, run.getLookupTime());
+        if (run.getFailure() != null) {
+            document.append(FAILURE, run.getFailure());
+        }
+        return document;
+    }
+
+    private static void appendMillis(BasicDBObject document, String key, Duration duration) {
+        if (duration != null) {
+            document.append(key, duration.toMillis());
+        }
+    }
+
+    static MigrationRun toRun(DBObject document) {
+        List<MigrationRun.ChangeSetRun> changeSets = new ArrayList<>();
+        Object changeSetDocuments = document.get(CHANGE_SETS);
+        if (changeSetDocuments instanceof List) {
+            for (Object changeSetDocument : (List<?>) changeSetDocuments) {
+                DBObject changeSet = (DBObject) changeSetDocument;
+                Number documents = (Number) changeSet.get(DOCUMENTS);
+                changeSets.add(new MigrationRun.ChangeSetRun((String) changeSet.get(MongeezTrackingCollection.FILE),
+                        (String) changeSet.get(MongeezTrackingCollection.CHANGE_ID),
+                        (String) changeSet.get(MongeezTrackingCollection.AUTHOR),
+                        ChangeSetExecution.toDuration(changeSet.get(DURATION)),
+                        documents != null ? documents.longValue() : null,
+                        Boolean.TRUE.equals(changeSet.get(FAILED))));
+            }
+        }
+        Number skipped = (Number) document.get(SKIPPED);
+        Instant startedAt = ChangeSetExecution.toInstant(document.get(STARTED_AT));
+        return new MigrationRun((String) document.get(DATABASE), (String) document.get(HOST),
+                (String) document.get(VERSION), startedAt, ChangeSetExecution.toDuration(document.get(DURATION)),
+                (String) document.get(FAILURE), ChangeSetExecution.toDuration(document.get(LOCK_WAIT_TIME)),
+                ChangeSetExecution.toDuration(document.get(PARSE_TIME)),
+                ChangeSetExecution.toDuration(document.get(LOOKUP_TIME)), skipped != null ? skipped.intValue() : 0,
+                changeSets);
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mongeez.commands.ChangeSet;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MigrationListener} that records each migration as {@link MigrationRun} in the
+ * {@link MigrationHistory} once it has finished. Databases migrated concurrently, e.g.
+ * tenant databases, are recorded separately.
+ * <p>
+ * Index change sets that are still being built in the background when the migration
+ * finishes are not part of the recorded run. Events for databases without a running
+ * migration are ignored.
+ *
+ * @author Timo Kockert
+ */
+public class MigrationHistoryListener implements MigrationListener {
+
+    private static final Log logger = LogFactory.getLog(MigrationHistoryListener.class);
+
+    private final MigrationHistory history;
+
+    private final String host = determineHost();
+
+    private final String version;
+
+    private final Map<String, RunRecorder> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new listener.
+     * @param history the history to record runs in
+     * @param version the version of the application or {@code null} if unknown
+     */
+    public MigrationHistoryListener(MigrationHistory history, String version) {
+        this.history = history;
+        this.version = version;
+    }
+
+    @Override
+    public void migrationStarted(String database) {
+        this.runs.put(database, new RunRecorder());
+    }
+
+    @Override
+    public void lockAcquired(String database, Duration waitTime) {
+        run(database).ifPresent((run) -> run.lockWaitTime = waitTime);
+    }
+
+    @Override
+    public void changeLogsParsed(String database, int changeSets, Duration parseTime) {
+        run(database).ifPresent((run) -> run.parseTime = parseTime);
+    }
+
+    @Override
+    public void executedChangeSetsLoaded(String database, int executedChangeSets, Duration lookupTime) {
+        run(database).ifPresent((run) -> run.lookupTime = lookupTime);
+    }
+
+    @Override
+    public void changeSetSkipped(String database, ChangeSet changeSet) {
+        run(database).ifPresent(RunRecorder::skipped);
+    }
+
+    @Override
+    public void documentsAffected(String database, ChangeSet changeSet, long documents) {
+        run(database).ifPresent((run) -> run.documentsAffected(changeSet, documents));
+    }
+
+    @Override
+    public void changeSetExecuted(String database, ChangeSet changeSet, Duration duration) {
+        run(database).ifPresent((run) -> run.changeSetFinished(changeSet, duration, false));
+    }
+
+    @Override
+    public void changeSetFailed(String database, ChangeSet changeSet, Duration duration, Throwable failure) {
+        run(database).ifPresent((run) -> run.changeSetFinished(changeSet, duration, true));
+    }
+
+    @Override
+    public void migrationFinished(String database, Duration duration, Throwable failure) {
+        RunRecorder recorder = this.runs.remove(database);
+        if (recorder == null) {
+            recorder = new RunRecorder();
+        }
+        MigrationRun run = recorder.toRun(database, this.host, this.version, duration, failure);
+        try {
+            this.history.save(run);
+        } catch (RuntimeException ex) {
+            logger.warn("Cannot record Mongeez migration of database " + database + " in history", ex);
+        }
+    }
+
+    /**
+     * Return the running migration of the given database. There is none for index
+     * change sets that finish in the background after the migration has been recorded.
+     * @param database the database
+     * @return the run or empty if the database is not being migrated
+     */
+    private Optional<RunRecorder> run(String database) {
+        return Optional.ofNullable(this.runs.get(database));
+    }
+
+    private static String determineHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Collects the events of a single run. Change sets may finish concurrently if they
+     * are executed in parallel.
+     */
+    private static class RunRecorder {
+
+        private volatile Duration lockWaitTime;
+
+        private volatile Duration parseTime;
+
+        private volatile Duration lookupTime;
+
+        private int skipped;
+
+        private final List<MigrationRun.ChangeSetRun> changeSets = new ArrayList<>();
+
+        private final Map<ChangeSetKey, Long> documents = new HashMap<>();
+
+        synchronized void skipped() {
+            this.skipped++;
+        }
+
+        synchronized void documentsAffected(ChangeSet changeSet, long documents) {
+            this.documents.put(ChangeSetKey.of(changeSet), documents);
+        }
+
+        synchronized void changeSetFinished(ChangeSet changeSet, Duration duration, boolean failed) {
+            this.changeSets.add(new MigrationRun.ChangeSetRun(changeSet.getFile(), changeSet.getChangeId(),
+                    changeSet.getAuthor(), duration, this.documents.remove(ChangeSetKey.of(changeSet)), failed));
+        }
+
+        synchronized MigrationRun toRun(String database, String host, String version, Duration duration,
+                                        Throwable failure) {
+            String failureMessage = failure != null ? String.valueOf(failure.getMessage()) : null;
+            return new MigrationRun(database, host, version, Instant.now().minus(duration), duration, failureMessage,
+                    this.lockWaitTime, this.parseTime, this.lookupTime, this.skipped, new ArrayList<>(this.changeSets));
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+
+import java.time.Duration;
+
+/**
+ * Callback interface for beans that want to observe Mongeez migrations, e.g. to record
+ * metrics. Callbacks may be invoked concurrently if change sets are executed in parallel.
+ *
+ * @author Timo Kockert
+ */
+public interface MigrationListener {
+
+    /**
+     * Called before a database is migrated.
+     * @param database the database being migrated
+     */
+    default void migrationStarted(String database) {
+    }
+
+    /**
+     * Called once the migration lock has been acquired.
+     * @param database the database being migrated
+     * @param waitTime the time spent waiting for the lock
+     */
+    default void lockAcquired(String database, Duration waitTime) {
+    }
+
+    /**
+     * Called once all change log files have been parsed.
+     * @param database the database being migrated
+     * @param changeSets the number of change sets found
+     * @param parseTime the time spent parsing
+     */
+    default void changeLogsParsed(String database, int changeSets, Duration parseTime) {
+    }
+
+    /**
+     * Called once the executed change sets have been loaded from the Mongeez collection.
+     * @param database the database being migrated
+     * @param executedChangeSets the number of executed change sets
+     * @param lookupTime the time spent loading
+     */
+    default void executedChangeSetsLoaded(String database, int executedChangeSets, Duration lookupTime) {
+    }
+
+    /**
+     * Called for each change set that is skipped because it has already been executed.
+     * @param database the database being migrated
+     * @param changeSet the skipped change set
+     */
+    default void changeSetSkipped(String database, ChangeSet changeSet) {
+    }
+
+    /**
+     * Called for each change set that has been executed successfully.
+     * @param database the database being migrated
+     * @param changeSet the executed change set
+     * @param duration the time spent executing the change set
+     */
+    default void changeSetExecuted(String database, ChangeSet changeSet, Duration duration) {
+    }
+
+    /**
+     * Called before {@link #changeSetExecuted} for change sets that report the number of
+     * documents they have written, i.e. bulk write change sets and chunked migrations.
+     * @param database the database being migrated
+     * @param changeSet the executed change set
+     * @param documents the number of documents written or processed
+     */
+    default void documentsAffected(String database, ChangeSet changeSet, long documents) {
+    }
+
+    /**
+     * Called for each change set that has failed.
+     * @param database the database being migrated
+     * @param changeSet the failed change set
+     * @param duration the time spent executing the change set
+     * @param failure the cause of the failure
+     */
+    default void changeSetFailed(String database, ChangeSet changeSet, Duration duration, Throwable failure) {
+    }
+
+    /**
+     * Called periodically while an index of an index change set is being built.
+     * @param database the database being migrated
+     * @param changeSet the index change set
+     * @param collection the collection the index is built on
+     * @param index the name of the index
+     * @param done the number of documents or keys processed so far
+     * @param total the total number of documents or keys to process
+     */
+    default void indexBuildProgress(String database, ChangeSet changeSet, String collection, String index,
+                                    long done, long total) {
+    }
+
+    /**
+     * Called once the migration has finished, including migrations that have been
+     * skipped because the change logs are unchanged.
+     * @param database the database being migrated
+     * @param duration the total time spent migrating
+     * @param failure the cause of the failure or {@code null} if the migration succeeded
+     */
+    default void migrationFinished(String database, Duration duration, Throwable failure) {
+    }
+
+}
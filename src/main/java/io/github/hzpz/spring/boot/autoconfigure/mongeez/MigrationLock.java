@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import com.mongodb.MongoException;
+import com.mongodb.WriteResult;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease based lock stored in the database to be migrated, ensuring that only one
+ * application instance runs Mongeez at a time.
+ * <p>
+ * The lock expires after the configured lease time unless it is renewed. While held,
+ * it is renewed in the background, so a crashed owner blocks others only until its
+ * lease runs out.
+ *
+ * @author Timo Kockert
+ */
+class MigrationLock {
+
+    static final String COLLECTION_NAME = "mongeezLock";
+
+    private static final Log logger = LogFactory.getLog(MigrationLock.class);
+
+    private static final String LOCK_ID = "mongeez";
+
+    private static final String OWNER = "owner";
+
+    private static final String EXPIRES_AT = "expiresAt";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final DBCollection collection;
+
+    private final MongeezProperties.Lock properties;
+
+    private final String owner;
+
+    private ScheduledExecutorService heartbeat;
+
+    @SuppressWarnings("deprecation")
+    MigrationLock(Mongo mongo, String database, MongeezProperties.Lock properties) {
+        this.collection = mongo.getDB(database).getCollection(COLLECTION_NAME);
+        this.properties = properties;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    }
+
+    /**
+     * Wait for the lock with exponential backoff and start renewing it once acquired.
+     * @return the time spent waiting for the lock
+     * @throws IllegalStateException if the lock could not be acquired within the
+     * configured maximum wait time
+     */
+    Duration acquire() {
+        this.collection.createIndex(new BasicDBObject(EXPIRES_AT, 1), new BasicDBObject("expireAfterSeconds", 0));
+        long start = System.nanoTime();
+        long maxWaitNanos = this.properties.getMaxWait().toNanos();
+        long backoff = this.properties.getInitialBackoff().toMillis();
+        while (!tryAcquire()) {
+            if (System.nanoTime() - start + TimeUnit.MILLISECONDS.toNanos(backoff) > maxWaitNanos) {
+                throw new IllegalStateException("Could not acquire Mongeez lock within "
+                        + this.properties.getMaxWait());
+            }
+            logger.info("Mongeez lock is held by another instance, retrying in " + backoff + " ms");
+            sleep(backoff);
+            backoff = Math.min(backoff * 2, this.properties.getMaxBackoff().toMillis());
+        }
+        startHeartbeat();
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    boolean tryAcquire() {
+        Date now = new Date();
+        DBObject query = new BasicDBObject("_id", LOCK_ID).append("$or", Arrays.asList(
+                new BasicDBObject(EXPIRES_AT, new BasicDBObject("$lt", now)),
+                new BasicDBObject(OWNER, this.owner)));
+        DBObject update = new BasicDBObject("$set", new BasicDBObject(OWNER, this.owner)
+                .append(EXPIRES_AT, expiresAt(now)));
+        try {
+            this.collection.findAndModify(query, null, null, false, update, true, true);
+            return true;
+        } catch (MongoException ex) {
+            if (ex.getCode() == DUPLICATE_KEY) {
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    boolean renew() {
+        DBObject query = new BasicDBObject("_id", LOCK_ID).append(OWNER, this.owner);
+        DBObject update = new BasicDBObject("$set", new BasicDBObject(EXPIRES_AT, expiresAt(new Date())));
+        WriteResult result = this.collection.update(query, update);
+        return result.getN() > 0;
+    }
+
+    void release() {
+        if (this.heartbeat != null) {
+            this.heartbeat.shutdownNow();
+            this.heartbeat = null;
+        }
+        this.collection.remove(new BasicDBObject("_id", LOCK_ID).append(OWNER, this.owner));
+    }
+
+    private void startHeartbeat() {
+        long interval = Math.max(this.properties.getLeaseTime().toMillis() / 3, 1);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mongeez-lock-");
+        threadFactory.setDaemon(true);
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (!renew()) {
+                    logger.warn("Mongeez lock has been lost, another instance may run migrations concurrently");
+                }
+            } catch (RuntimeException ex) {
+                logger.warn("Failed to renew Mongeez lock", ex);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private Date expiresAt(Date now) {
+        return new Date(now.getTime() + this.properties.getLeaseTime().toMillis());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Mongeez lock", ex);
+        }
+    }
+
+}
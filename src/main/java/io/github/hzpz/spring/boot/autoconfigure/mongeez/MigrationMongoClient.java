@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoClientURI;
+import com.mongodb.MongoCredential;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated, short-lived client for migrations, isolating them from the connection
+ * pool of the application's client.
+ * <p>
+ * Migrations {@link #retain() retain} the client while they run and {@link #release()
+ * release} it once they have finished, including index builds in the background. The
+ * client is closed when the last migration has released it after the application
+ * context has been refreshed, or when the context is closed, whichever comes first.
+ *
+ * @author Timo Kockert
+ */
+public class MigrationMongoClient implements ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(MigrationMongoClient.class);
+
+    static final int DEFAULT_MAX_POOL_SIZE = 2;
+
+    private final MongoClient client;
+
+    // the context holds a reference until it has been refreshed, so the client is not
+    // closed between the migration of the main database and the migration of tenants
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private final AtomicBoolean refreshed = new AtomicBoolean();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public MigrationMongoClient(MongoClient client) {
+        this.client = client;
+    }
+
+    public Mongo getMongo() {
+        return this.client;
+    }
+
+    public boolean isClosed() {
+        return this.closed.get();
+    }
+
+    /**
+     * Keep the client open until {@link #release()} is called.
+     * @throws IllegalStateException if the client has already been closed
+     */
+    public void retain() {
+        int references = this.references.getAndIncrement();
+        if (references <= 0) {
+            this.references.decrementAndGet();
+            throw new IllegalStateException("Mongeez migration client has already been closed");
+        }
+    }
+
+    /**
+     * Release the client and close it if it is no longer used.
+     */
+    public void release() {
+        if (this.references.decrementAndGet() == 0) {
+            close();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (this.refreshed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        close();
+    }
+
+    private void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            this.references.set(0);
+            logger.info("Closing Mongeez migration client");
+            this.client.close();
+        }
+    }
+
+    /**
+     * Create a client that connects to the same server as the application's client with
+     * the given settings.
+     * @param mongoProperties the properties of the application's client
+     * @param properties the settings of the client
+     * @param credential the credential to authenticate with or {@code null}, ignored if
+     * a connection string is configured
+     * @return the client
+     */
+    static MigrationMongoClient create(MongoProperties mongoProperties, MongeezProperties.Client properties,
+                                       MongoCredential credential) {
+        MongoClientOptions.Builder options = createOptions(properties);
+        if (mongoProperties.getUri() != null || mongoProperties.getHost() == null) {
+            return new MigrationMongoClient(new MongoClient(new MongoClientURI(mongoProperties.determineUri(),
+                    options)));
+        }
+        int port = mongoProperties.getPort() != null ? mongoProperties.getPort() : MongoProperties.DEFAULT_PORT;
+        ServerAddress address = new ServerAddress(mongoProperties.getHost(), port);
+        if (credential == null) {
+            return new MigrationMongoClient(new MongoClient(address, options.build()));
+        }
+        return new MigrationMongoClient(new MongoClient(address, credential, options.build()));
+    }
+
+    static MongoClientOptions.Builder createOptions(MongeezProperties.Client properties) {
+        MongoClientOptions.Builder options = MongoClientOptions.builder()
+                .applicationName("mongeez")
+                .connectionsPerHost(properties.getMaxPoolSize() != null
+                        ? properties.getMaxPoolSize() : DEFAULT_MAX_POOL_SIZE)
+                .minConnectionsPerHost(properties.getMinPoolSize())
+                .maxWaitTime(toMillis(properties.getMaxWaitTime()))
+                .connectTimeout(toMillis(properties.getConnectTimeout()))
+                .socketTimeout(toMillis(properties.getSocketTimeout()))
+                .serverSelectionTimeout(toMillis(properties.getServerSelectionTimeout()));
+        if (StringUtils.hasText(properties.getReadConcern())) {
+            options.readConcern(new ReadConcern(ReadConcernLevel.fromString(properties.getReadConcern())));
+        }
+        if (StringUtils.hasText(properties.getWriteConcern())) {
+            WriteConcern writeConcern = WriteConcern.valueOf(properties.getWriteConcern());
+            Assert.state(writeConcern != null, "Unknown write concern '" + properties.getWriteConcern() + "'");
+            options.writeConcern(writeConcern);
+        }
+        if (StringUtils.hasText(properties.getReadPreference())) {
+            options.readPreference(ReadPreference.valueOf(properties.getReadPreference()));
+        }
+        return options;
+    }
+
+    private static int toMillis(Duration duration) {
+        return (int) duration.toMillis();
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The change sets a migration would execute, with their durations estimated from
+ * previous executions.
+ *
+ * @author Timo Kockert
+ */
+public final class MigrationPlan {
+
+    private final List<Step> steps;
+
+    MigrationPlan(List<Step> steps) {
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Create a plan for the given pending change sets.
+     * @param pending the pending change sets
+     * @param durations the durations of previous executions by key without resource path
+     * @return the plan
+     */
+    static MigrationPlan create(List<ChangeSet> pending, Map<ChangeSetKey, Duration> durations) {
+        List<Step> steps = new ArrayList<>(pending.size());
+        for (ChangeSet changeSet : pending) {
+            steps.add(new Step(changeSet.getFile(), changeSet.getChangeId(), changeSet.getAuthor(),
+                    changeSet.isRunAlways(), durations.get(ChangeSetKey.of(changeSet, false))));
+        }
+        return new MigrationPlan(steps);
+    }
+
+    public List<Step> getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Return the sum of all known estimated durations.
+     * @return the estimated duration of the migration
+     */
+    public Duration getEstimatedDuration() {
+        Duration total = Duration.ZERO;
+        for (Step step : this.steps) {
+            if (step.getEstimatedDuration() != null) {
+                total = total.plus(step.getEstimatedDuration());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Format the plan as human readable table.
+     * @return the formatted plan
+     */
+    public String format() {
+        if (this.steps.isEmpty()) {
+            return "Mongeez migration plan: no pending change sets";
+        }
+        StringBuilder plan = new StringBuilder(String.format("Mongeez migration plan: %d pending change sets%n",
+                this.steps.size()));
+        int unknown = 0;
+        for (Step step : this.steps) {
+            String estimate = step.getEstimatedDuration() != null ? step.getEstimatedDuration().toMillis() + " ms"
+                    : "unknown";
+            if (step.getEstimatedDuration() == null) {
+                unknown++;
+            }
+            plan.append(String.format("    %-40s %-30s %-15s %12s%s%n", step.getFile(), step.getChangeId(),
+                    step.getAuthor(), estimate, step.isRunAlways() ? " (run always)" : ""));
+        }
+        plan.append(String.format("Estimated duration: %d ms", getEstimatedDuration().toMillis()));
+        if (unknown > 0) {
+            plan.append(String.format(" plus %d change sets without previous executions", unknown));
+        }
+        return plan.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    /**
+     * A change set that would be executed.
+     */
+    public static final class Step {
+
+        private final String file;
+
+        private final String changeId;
+
+        private final String author;
+
+        private final boolean runAlways;
+
+        private final Duration estimatedDuration;
+
+        Step(String file, String changeId, String author, boolean runAlways, Duration estimatedDuration) {
+            this.file = file;
+            this.changeId = changeId;
+            this.author = author;
+            this.runAlways = runAlways;
+            this.estimatedDuration = estimatedDuration;
+        }
+
+        public String getFile() {
+            return this.file;
+        }
+
+        public String getChangeId() {
+            return this.changeId;
+        }
+
+        public String getAuthor() {
+            return this.author;
+        }
+
+        public boolean isRunAlways() {
+            return this.runAlways;
+        }
+
+        /**
+         * Return the duration of the last recorded execution of the change set.
+         * @return the estimated duration or {@code null} if unknown
+         */
+        public Duration getEstimatedDuration() {
+            return this.estimatedDuration;
+        }
+
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single run of Mongeez against a database as recorded in the {@link MigrationHistory},
+ * including runs that have been skipped because the change logs were up to date.
+ *
+ * @author Timo Kockert
+ */
+public final class MigrationRun {
+
+    private final String database;
+
+    private final String host;
+
+    private final String version;
+
+    private final Instant startedAt;
+
+    private final Duration duration;
+
+    private final String failure;
+
+    private final Duration lockWaitTime;
+
+    private final Duration parseTime;
+
+    private final Duration lookupTime;
+
+    private final int skipped;
+
+    private final List<ChangeSetRun> changeSets;
+
+    MigrationRun(String database, String host, String version, Instant startedAt, Duration duration, String failure,
+                 Duration lockWaitTime, Duration parseTime, Duration lookupTime, int skipped,
+                 List<ChangeSetRun> changeSets) {
+        this.database = database;
+        this.host = host;
+        this.version = version;
+        this.startedAt = startedAt;
+        this.duration = duration;
+        this.failure = failure;
+        this.lockWaitTime = lockWaitTime;
+        this.parseTime = parseTime;
+        this.lookupTime = lookupTime;
+        this.skipped = skipped;
+        this.changeSets = Collections.unmodifiableList(changeSets);
+    }
+
+    public String getDatabase() {
+        return this.database;
+    }
+
+    public String getHost() {
+        return this.host;
+    }
+
+    /**
+     * Return the version of the application that has run the migration.
+     * @return the version or {@code null} if unknown
+     */
+    public String getVersion() {
+        return this.version;
+    }
+
+    public Instant getStartedAt() {
+        return this.startedAt;
+    }
+
+    public Duration getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Return the message of the exception the migration has failed with.
+     * @return the failure or {@code null} if the migration has succeeded
+     */
+    public String getFailure() {
+        return this.failure;
+    }
+
+    public boolean isFailed() {
+        return this.failure != null;
+    }
+
+    /**
+     * Return the time spent waiting for the migration lock.
+     * @return the wait time or {@code null} if no lock has been acquired
+     */
+    public Duration getLockWaitTime() {
+        return this.lockWaitTime;
+    }
+
+    /**
+     * Return the time spent parsing the change logs.
+     * @return the parse time or {@code null} if the change logs were up to date
+     */
+    public Duration getParseTime() {
+        return this.parseTime;
+    }
+
+    /**
+     * Return the time spent loading the executed change sets.
+     * @return the lookup time or {@code null} if the change logs were up to date
+     */
+    public Duration getLookupTime() {
+        return this.lookupTime;
+    }
+
+    /**
+     * Return whether the migration has been skipped because the change logs were up to
+     * date.
+     * @return whether the change logs were up to date
+     */
+    public boolean isUpToDate() {
+        return this.parseTime == null && this.failure == null;
+    }
+
+    public int getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Return the change sets executed by this run, in the order they have finished.
+     * @return the executed and failed change sets
+     */
+    public List<ChangeSetRun> getChangeSets() {
+        return this.changeSets;
+    }
+
+    /**
+     * A change set executed by a {@link MigrationRun}.
+     */
+    public static final class ChangeSetRun {
+
+        private final String file;
+
+        private final String changeId;
+
+        private final String author;
+
+        private final Duration duration;
+
+        private final Long documents;
+
+        private final boolean failed;
+
+        ChangeSetRun(String file, String changeId, String author, Duration duration, Long documents,
+                     boolean failed) {
+            this.file = file;
+            this.changeId = changeId;
+            this.author = author;
+            this.duration = duration;
+            this.documents = documents;
+            this.failed = failed;
+        }
+
+        public String getFile() {
+            return this.file;
+        }
+
+        public String getChangeId() {
+            return this.changeId;
+        }
+
+        public String getAuthor() {
+            return this.author;
+        }
+
+        public Duration getDuration() {
+            return this.duration;
+        }
+
+        /**
+         * Return the number of documents the change set has written or processed.
+         * @return the number of documents or {@code null} if unknown, e.g. for scripts
+         */
+        public Long getDocuments() {
+            return this.documents;
+        }
+
+        public boolean isFailed() {
+            return this.failed;
+        }
+
+        ChangeSetKey getKey() {
+            return new ChangeSetKey(this.file, this.changeId, this.author);
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * State of the Mongeez migration run on startup.
+ * <p>
+ * In asynchronous mode, beans that need the migrated database can wait for
+ * {@link #getCompletion()} instead of depending on the Mongeez bean.
+ *
+ * @author Timo Kockert
+ */
+public class MigrationState {
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private volatile Status status = Status.PENDING;
+
+    private volatile Throwable failure;
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public Throwable getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Return a future that completes once the migration has finished, or completes
+     * exceptionally if the migration has failed.
+     * @return the migration completion
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return this.completion.thenApply(Function.identity());
+    }
+
+    void run(Runnable migration) {
+        this.status = Status.RUNNING;
+        try {
+            migration.run();
+        } catch (RuntimeException | Error ex) {
+            this.failure = ex;
+            this.status = Status.FAILED;
+            this.completion.completeExceptionally(ex);
+            throw ex;
+        }
+        this.status = Status.COMPLETED;
+        this.completion.complete(null);
+    }
+
+    /**
+     * Status of the migration.
+     */
+    public enum Status {
+
+        /**
+         * The migration has not started yet.
+         */
+        PENDING,
+
+        /**
+         * The migration is running.
+         */
+        RUNNING,
+
+        /**
+         * The migration has completed successfully.
+         */
+        COMPLETED,
+
+        /**
+         * The migration has failed.
+         */
+        FAILED
+
+    }
+
+}
@@ -15,23 +15,32 @@
 package io.github.hzpz.spring.boot.autoconfigure.mongeez;
 
 import com.mongodb.Mongo;
+import com.mongodb.MongoCredential;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.mongeez.Mongeez;
 import org.mongeez.MongeezRunner;
 import org.mongeez.MongoAuth;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.info.BuildProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.DefaultResourceLoader;
@@ -42,6 +51,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
+import java.util.stream.Collectors;
 
 /**
  * {@link EnableAutoConfiguration Auto-configuration} for Mongeez.
@@ -52,6 +62,7 @@ import javax.annotation.PostConstruct;
 @ConditionalOnClass(Mongeez.class)
 @ConditionalOnBean(Mongo.class)
 @ConditionalOnProperty(prefix = "mongeez", name = "enabled", matchIfMissing = true)
+@Conditional(MongeezAutoConfiguration.BlockingMigrationCondition.class)
 @EnableConfigurationProperties({MongoProperties.class, MongeezProperties.class})
 @AutoConfigureAfter(MongoAutoConfiguration.class)
 @AutoConfigureBefore(name = {
@@ -63,9 +74,11 @@ public class MongeezAutoConfiguration {
     @Configuration
     @ConditionalOnMissingBean(MongeezRunner.class)
     @EnableConfigurationProperties(MongeezProperties.class)
-    @Import(MongeezDataMongoDependencyConfiguration.class)
+    @Import({MongeezDataMongoDependencyConfiguration.class, MongeezHealthIndicatorConfiguration.class})
     public static class MongeezConfiguration {
 
+        private static final Log logger = LogFactory.getLog(MongeezConfiguration.class);
+
         @Autowired
         private MongeezProperties mongeezProperties = new MongeezProperties();
 
@@ -78,10 +91,22 @@ public class MongeezAutoConfiguration {
                     "Cannot find Mongeez migration script at '" + this.mongeezProperties.getLocation() + "'");
         }
 
+        @Bean
+        public MigrationState mongeezMigrationState() {
+            return new MigrationState();
+        }
+
         @Bean(initMethod = "process")
-        public Mongeez mongeez(MongoProperties mongoProperties, Mongo mongo) {
-            Mongeez mongeez = new Mongeez();
+        public MongeezMigrator mongeez(MongoProperties mongoProperties, Mongo mongo,
+                                       MigrationState mongeezMigrationState,
+                                       ObjectProvider<MigrationListener> migrationListeners,
+                                       ObjectProvider<ChunkedMigration> chunkedMigrations,
+                                       ObjectProvider<MigrationMongoClient> mongeezMigrationClient,
+                                       ObjectProvider<MigrationHistory> mongeezMigrationHistory) {
+            MongeezMigrator mongeez = new MongeezMigrator();
             mongeez.setMongo(mongo);
+            // the client needs the credentials before they are cleared below
+            mongeez.setMigrationClient(mongeezMigrationClient.getIfAvailable());
 
             copyMissingProperties(mongoProperties, this.mongeezProperties);
 
@@ -90,10 +115,144 @@ public class MongeezAutoConfiguration {
                 MongoAuth auth = this.mongeezProperties.createMongoAuth();
                 mongeez.setAuth(auth);
             }
-            mongeez.setFile(this.resourceLoader.getResource(this.mongeezProperties.getLocation()));
+            configureChangeLogs(mongeez, this.mongeezProperties, this.resourceLoader);
+            mongeez.setFingerprintEnabled(this.mongeezProperties.getFingerprint().isEnabled());
+            mongeez.setLock(this.mongeezProperties.getLock());
+            mongeez.setParallel(this.mongeezProperties.getParallel());
+            int bulkWriteBatchSize = this.mongeezProperties.getBulkWrite().getBatchSize();
+            Assert.state(bulkWriteBatchSize >= 1,
+                    "mongeez.bulk-write.batch-size must be at least 1, but was " + bulkWriteBatchSize);
+            mongeez.setBulkWriteBatchSize(bulkWriteBatchSize);
+            mongeez.setIndexBuild(this.mongeezProperties.getIndexBuild());
+            mongeez.setValidateChecksums(this.mongeezProperties.isValidateChecksums());
+            mongeez.setChunked(this.mongeezProperties.getChunked());
+            mongeez.setChunkedMigrations(chunkedMigrations.orderedStream().collect(Collectors.toList()));
+            mongeez.setMode(this.mongeezProperties.getMode());
+            mongeez.setMigrationState(mongeezMigrationState);
+            mongeez.setHistory(mongeezMigrationHistory.getIfAvailable());
+            mongeez.setListeners(migrationListeners.orderedStream().collect(Collectors.toList()));
             return mongeez;
         }
 
+        @Bean
+        @ConditionalOnProperty(prefix = "mongeez.client", name = "enabled")
+        public MigrationMongoClient mongeezMigrationClient(MongoProperties mongoProperties,
+                ObjectProvider<TenantDatabaseProvider> tenantDatabaseProvider) {
+            copyMissingProperties(mongoProperties, this.mongeezProperties);
+            configureMaxPoolSize(this.mongeezProperties, tenantDatabaseProvider.getIfAvailable() != null);
+            MongoCredential credential = null;
+            if (this.mongeezProperties.hasCredentials()) {
+                String authDb = this.mongeezProperties.getAuthenticationDatabase() != null
+                        ? this.mongeezProperties.getAuthenticationDatabase() : this.mongeezProperties.getDatabase();
+                credential = MongoCredential.createCredential(this.mongeezProperties.getUsername(), authDb,
+                        this.mongeezProperties.getPassword().clone());
+            }
+            return MigrationMongoClient.create(mongoProperties, this.mongeezProperties.getClient(), credential);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "mongeez.history", name = "enabled")
+        public MigrationHistory mongeezMigrationHistory(Mongo mongo) {
+            return new MigrationHistory(mongo, this.mongeezProperties.getHistory());
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "mongeez.history", name = "enabled")
+        public MigrationHistoryListener mongeezHistoryListener(MigrationHistory mongeezMigrationHistory,
+                                                               ObjectProvider<BuildProperties> buildProperties) {
+            String version = this.mongeezProperties.getHistory().getVersion();
+            if (version == null) {
+                BuildProperties build = buildProperties.getIfAvailable();
+                version = build != null ? build.getVersion() : null;
+            }
+            return new MigrationHistoryListener(mongeezMigrationHistory, version);
+        }
+
+        @Bean(initMethod = "migrate")
+        @Conditional(TenantsCondition.class)
+        public TenantMigrationScheduler mongeezTenantMigrationScheduler(MongeezMigrator mongeez, Mongo mongo,
+                MigrationState mongeezMigrationState, ObjectProvider<TenantDatabaseProvider> tenantDatabaseProvider,
+                ObjectProvider<MigrationMongoClient> mongeezMigrationClient) {
+            MongeezProperties.Tenants tenants = this.mongeezProperties.getTenants();
+            TenantDatabaseProvider databaseProvider = tenantDatabaseProvider.getIfAvailable(
+                    () -> new PropertiesTenantDatabaseProvider(mongo, mongeez.getDatabaseName(), tenants));
+            TenantMigrationScheduler scheduler = new TenantMigrationScheduler(databaseProvider,
+                    (database) -> mongeez.forDatabase(database).process());
+            scheduler.setParallelism(tenants.getParallelism());
+            scheduler.setFailOnError(tenants.isFailOnError());
+            scheduler.setAsync(this.mongeezProperties.getMode() == MongeezProperties.Mode.ASYNC);
+            scheduler.setMainMigration(mongeezMigrationState.getCompletion());
+            scheduler.setMigrationClient(mongeezMigrationClient.getIfAvailable());
+            return scheduler;
+        }
+
+        /**
+         * Size the pool of the dedicated client for the number of change sets that can be
+         * executed concurrently, or warn if the configured pool is smaller.
+         * @param properties the Mongeez properties
+         * @param tenantDatabaseProvider whether a {@link TenantDatabaseProvider} is available
+         */
+        static void configureMaxPoolSize(MongeezProperties properties, boolean tenantDatabaseProvider) {
+            MongeezProperties.Tenants tenants = properties.getTenants();
+            int concurrency = Math.max(1, properties.getParallel().getParallelism());
+            if (tenantDatabaseProvider || !tenants.getDatabases().isEmpty()
+                    || StringUtils.hasText(tenants.getDatabasePattern())) {
+                concurrency *= Math.max(1, tenants.getParallelism());
+            }
+            MongeezProperties.Client client = properties.getClient();
+            if (client.getMaxPoolSize() == null) {
+                client.setMaxPoolSize(Math.max(MigrationMongoClient.DEFAULT_MAX_POOL_SIZE, concurrency));
+            } else if (client.getMaxPoolSize() < concurrency) {
+                logger.warn("Up to " + concurrency + " change sets are executed concurrently, but "
+                        + "mongeez.client.max-pool-size is " + client.getMaxPoolSize()
+                        + ". Migrations will wait for connections of the dedicated client.");
+            }
+        }
+
+        /**
+         * Configure where the given migrator reads its change logs from. Shared with
+         * {@link MongeezPlanner}, which plans migrations without a database.
+         * @param mongeez the migrator
+         * @param properties the Mongeez properties
+         * @param resourceLoader the resource loader to resolve locations with
+         */
+        static void configureChangeLogs(MongeezMigrator mongeez, MongeezProperties properties,
+                                        ResourceLoader resourceLoader) {
+            mongeez.setFile(resourceLoader.getResource(properties.getLocation()));
+            ChangeLogIndex changeLogIndex = loadChangeLogIndex(properties, resourceLoader);
+            if (changeLogIndex != null) {
+                mongeez.setChangeLogIndex(changeLogIndex, properties.getCompiledIndex().isRequired());
+            }
+            mongeez.setCacheDirectory(properties.getCache().getDirectory());
+        }
+
+        private static ChangeLogIndex loadChangeLogIndex(MongeezProperties properties, ResourceLoader resourceLoader) {
+            MongeezProperties.CompiledIndex compiledIndex = properties.getCompiledIndex();
+            Assert.state(compiledIndex.isEnabled() || !compiledIndex.isRequired(),
+                    "mongeez.compiled-index.required cannot be combined with mongeez.compiled-index.enabled=false");
+            if (!compiledIndex.isEnabled()) {
+                return null;
+            }
+            ChangeLogIndex index = ChangeLogIndex.load(resourceLoader.getResource(compiledIndex.getLocation()));
+            if (index != null && !index.matches(properties.getLocation())) {
+                logger.warn("Ignoring Mongeez change log index compiled from '" + index.getLocation()
+                        + "' since it does not match '" + properties.getLocation() + "'");
+                index = null;
+            }
+            if (index == null && (compiledIndex.isRequired() || isNativeImage())) {
+                String msg = "No Mongeez change log index compiled from '" + properties.getLocation() + "' found at '"
+                        + compiledIndex.getLocation() + "'. Parsing change logs at runtime relies on reflection, "
+                        + "compile them with the Mongeez Maven plugin instead.";
+                Assert.state(!compiledIndex.isRequired(), msg);
+                logger.warn(msg);
+            }
+            return index;
+        }
+
+        private static boolean isNativeImage() {
+            return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+        }
+
         private void copyMissingProperties(MongoProperties mongoProperties, MongeezProperties mongeezProperties) {
             if (StringUtils.isEmpty(mongeezProperties.getDatabase())) {
                 mongeezProperties.setDatabase(mongoProperties.getMongoClientDatabase());
@@ -117,15 +276,81 @@ public class MongeezAutoConfiguration {
 
     /**
      * Additional configuration to ensure that {@link MongoDbFactory} beans
-     * depend-on the Mongeez bean.
+     * depend-on the Mongeez bean. Not applied in asynchronous mode, where
+     * {@link MigrationState} is used instead.
      */
     @Configuration
     @ConditionalOnClass(MongoDbFactory.class)
+    @ConditionalOnProperty(prefix = "mongeez", name = "mode", havingValue = "sync", matchIfMissing = true)
     protected static class MongeezDataMongoDependencyConfiguration {
 
         @Bean
         public static BeanFactoryPostProcessor mongoDbFactoryDependsOnPostProcessor() {
-            return new MongoDbFactoryDependsOnPostProcessor("mongeez");
+            return new MongoDbFactoryDependsOnPostProcessor("mongeez", "mongeezTenantMigrationScheduler");
+        }
+
+    }
+
+    /**
+     * Additional configuration to expose the {@link MigrationState} as health.
+     */
+    @Configuration
+    @ConditionalOnClass(HealthIndicator.class)
+    protected static class MongeezHealthIndicatorConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(name = "mongeezHealthIndicator")
+        public MongeezHealthIndicator mongeezHealthIndicator(MigrationState mongeezMigrationState) {
+            return new MongeezHealthIndicator(mongeezMigrationState);
+        }
+
+    }
+
+    /**
+     * Matches if tenant databases are configured or a {@link TenantDatabaseProvider} bean
+     * is available.
+     */
+    static class TenantsCondition extends AnyNestedCondition {
+
+        TenantsCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = "mongeez.tenants", name = "databases")
+        static class Databases {
+
+        }
+
+        @ConditionalOnProperty(prefix = "mongeez.tenants", name = "databases[0]")
+        static class IndexedDatabases {
+
+        }
+
+        @ConditionalOnProperty(prefix = "mongeez.tenants", name = "database-pattern")
+        static class DatabasePattern {
+
+        }
+
+        @ConditionalOnBean(TenantDatabaseProvider.class)
+        static class Provider {
+
+        }
+
+    }
+
+    /**
+     * Backs off if migrations should run with the reactive MongoClient, see
+     * {@link MongeezReactiveAutoConfiguration}.
+     */
+    static class BlockingMigrationCondition extends NoneNestedConditions {
+
+        BlockingMigrationCondition() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+
+        @ConditionalOnProperty(prefix = "mongeez.reactive", name = "enabled")
+        static class ReactiveEnabled {
+
         }
 
     }
@@ -0,0 +1,375 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.mongeez.commands.ChangeSet;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Endpoint} to expose applied and pending Mongeez change sets.
+ * <p>
+ * The report is computed from a single query for all executed change sets and the
+ * change logs parsed once by the {@link MongeezMigrator}, so it never executes or
+ * re-parses anything. Applied change sets include whether their recorded checksum still
+ * matches the change logs. If a {@link MigrationHistory} is available, the most recent
+ * runs are included as well.
+ *
+ * @author Timo Kockert
+ */
+@Endpoint(id = "mongeez")
+public class MongeezEndpoint {
+
+    private static final int HISTORY_RUNS = 10;
+
+    private final MongeezMigrator migrator;
+
+    private final MigrationHistory history;
+
+    public MongeezEndpoint(MongeezMigrator migrator) {
+        this(migrator, null);
+    }
+
+    public MongeezEndpoint(MongeezMigrator migrator, MigrationHistory history) {
+        this.migrator = migrator;
+        this.history = history;
+    }
+
+    @ReadOperation
+    public MongeezReport mongeez() {
+        MongeezTrackingCollection trackingCollection = this.migrator.getTrackingCollection();
+        List<ChangeSetExecution> executions = trackingCollection.findExecutions();
+        Map<ChangeSetKey, ChangeSet> changeSets = new HashMap<>();
+        for (ChangeSet changeSet : this.migrator.getChangeSets()) {
+            changeSets.put(trackingCollection.keyOf(changeSet), changeSet);
+        }
+        Set<ChangeSetKey> executed = new HashSet<>();
+        List<ChangeSetDescriptor> applied = new ArrayList<>(executions.size());
+        for (ChangeSetExecution execution : executions) {
+            executed.add(execution.getKey());
+            applied.add(new ChangeSetDescriptor(execution,
+                    checksumState(execution, changeSets.get(execution.getKey()))));
+        }
+        List<ChangeSetDescriptor> pending = new ArrayList<>();
+        for (ChangeSet changeSet : this.migrator.findPendingChangeSets(executed,
+                trackingCollection.isResourcePathSupported())) {
+            pending.add(new ChangeSetDescriptor(changeSet));
+        }
+        FingerprintDescriptor fingerprint = new FingerprintDescriptor(this.migrator.getFingerprint(),
+                trackingCollection.findFingerprint());
+        return new MongeezReport(this.migrator.getDatabaseName(), applied, pending, fingerprint, findHistory());
+    }
+
+    private ChecksumState checksumState(ChangeSetExecution execution, ChangeSet changeSet) {
+        if (changeSet == null || changeSet.isRunAlways()) {
+            return null;
+        }
+        if (execution.getChecksum() == null) {
+            return ChecksumState.MISSING;
+        }
+        return execution.getChecksum().equals(this.migrator.getChecksum(changeSet)) ? ChecksumState.MATCHING
+                : ChecksumState.DRIFTED;
+    }
+
+    private List<RunDescriptor> findHistory() {
+        if (this.history == null) {
+            return Collections.emptyList();
+        }
+        List<RunDescriptor> runs = new ArrayList<>();
+        for (MigrationRun run : this.history.findRuns(this.migrator.getDatabaseName(), HISTORY_RUNS)) {
+            runs.add(new RunDescriptor(run));
+        }
+        return runs;
+    }
+
+    private static Long toMillis(Duration duration) {
+        return duration != null ? duration.toMillis() : null;
+    }
+
+    /**
+     * Description of the Mongeez migration state of a database.
+     */
+    public static final class MongeezReport {
+
+        private final String database;
+
+        private final List<ChangeSetDescriptor> applied;
+
+        private final List<ChangeSetDescriptor> pending;
+
+        private final FingerprintDescriptor fingerprint;
+
+        private final List<RunDescriptor> history;
+
+        private MongeezReport(String database, List<ChangeSetDescriptor> applied, List<ChangeSetDescriptor> pending,
+                              FingerprintDescriptor fingerprint, List<RunDescriptor> history) {
+            this.database = database;
+            this.applied = applied;
+            this.pending = pending;
+            this.fingerprint = fingerprint;
+            this.history = history;
+        }
+
+        public String getDatabase() {
+            return this.database;
+        }
+
+        public List<ChangeSetDescriptor> getApplied() {
+            return this.applied;
+        }
+
+        public List<ChangeSetDescriptor> getPending() {
+            return this.pending;
+        }
+
+        public FingerprintDescriptor getFingerprint() {
+            return this.fingerprint;
+        }
+
+        public List<RunDescriptor> getHistory() {
+            return this.history;
+        }
+
+    }
+
+    /**
+     * Description of a change set.
+     */
+    public static final class ChangeSetDescriptor {
+
+        private final String file;
+
+        private final String changeId;
+
+        private final String author;
+
+        private final Instant executedAt;
+
+        private final Long durationMillis;
+
+        private final Long documents;
+
+        private final ChecksumState checksum;
+
+        private ChangeSetDescriptor(ChangeSetExecution execution, ChecksumState checksum) {
+            this.file = execution.getKey().getFile();
+            this.changeId = execution.getKey().getChangeId();
+            this.author = execution.getKey().getAuthor();
+            this.executedAt = execution.getDate();
+            this.durationMillis = toMillis(execution.getDuration());
+            this.documents = null;
+            this.checksum = checksum;
+        }
+
+        private ChangeSetDescriptor(ChangeSet changeSet) {
+            this.file = changeSet.getFile();
+            this.changeId = changeSet.getChangeId();
+            this.author = changeSet.getAuthor();
+            this.executedAt = null;
+            this.durationMillis = null;
+            this.documents = null;
+            this.checksum = null;
+        }
+
+        private ChangeSetDescriptor(MigrationRun.ChangeSetRun changeSet, Instant executedAt) {
+            this.file = changeSet.getFile();
+            this.changeId = changeSet.getChangeId();
+            this.author = changeSet.getAuthor();
+            this.executedAt = executedAt;
+            this.durationMillis = toMillis(changeSet.getDuration());
+            this.documents = changeSet.getDocuments();
+            this.checksum = null;
+        }
+
+        public String getFile() {
+            return this.file;
+        }
+
+        public String getChangeId() {
+            return this.changeId;
+        }
+
+        public String getAuthor() {
+            return this.author;
+        }
+
+        public Instant getExecutedAt() {
+            return this.executedAt;
+        }
+
+        public Long getDurationMillis() {
+            return this.durationMillis;
+        }
+
+        public Long getDocuments() {
+            return this.documents;
+        }
+
+        /**
+         * Return whether the recorded checksum of an applied change set still matches
+         * the change logs.
+         * @return the checksum state or {@code null} if the change set is not applied, no
+         * longer part of the change logs or runs always
+         */
+        public ChecksumState getChecksum() {
+            return this.checksum;
+        }
+
+    }
+
+    /**
+     * State of the recorded checksum of an applied change set.
+     */
+    public enum ChecksumState {
+
+        /**
+         * The recorded checksum matches the change set in the change logs.
+         */
+        MATCHING,
+
+        /**
+         * No checksum has been recorded, e.g. because Mongeez itself executed the change set.
+         */
+        MISSING,
+
+        /**
+         * The change set has been modified since it was executed.
+         */
+        DRIFTED
+
+    }
+
+    /**
+     * Description of a recorded migration run.
+     */
+    public static final class RunDescriptor {
+
+        private final String host;
+
+        private final String version;
+
+        private final Instant startedAt;
+
+        private final Long durationMillis;
+
+        private final boolean upToDate;
+
+        private final String failure;
+
+        private final Long lockWaitMillis;
+
+        private final Long parseMillis;
+
+        private final Long lookupMillis;
+
+        private final List<ChangeSetDescriptor> changeSets;
+
+        private RunDescriptor(MigrationRun run) {
+            this.host = run.getHost();
+            this.version = run.getVersion();
+            this.startedAt = run.getStartedAt();
+            this.durationMillis = toMillis(run.getDuration());
+            this.upToDate = run.isUpToDate();
+            this.failure = run.getFailure();
+            this.lockWaitMillis = toMillis(run.getLockWaitTime());
+            this.parseMillis = toMillis(run.getParseTime());
+            this.lookupMillis = toMillis(run.getLookupTime());
+            this.changeSets = new ArrayList<>(run.getChangeSets().size());
+            for (MigrationRun.ChangeSetRun changeSet : run.getChangeSets()) {
+                this.changeSets.add(new ChangeSetDescriptor(changeSet, run.getStartedAt()));
+            }
+        }
+
+        public String getHost() {
+            return this.host;
+        }
+
+        public String getVersion() {
+            return this.version;
+        }
+
+        public Instant getStartedAt() {
+            return this.startedAt;
+        }
+
+        public Long getDurationMillis() {
+            return this.durationMillis;
+        }
+
+        public boolean isUpToDate() {
+            return this.upToDate;
+        }
+
+        public String getFailure() {
+            return this.failure;
+        }
+
+        public Long getLockWaitMillis() {
+            return this.lockWaitMillis;
+        }
+
+        public Long getParseMillis() {
+            return this.parseMillis;
+        }
+
+        public Long getLookupMillis() {
+            return this.lookupMillis;
+        }
+
+        public List<ChangeSetDescriptor> getChangeSets() {
+            return this.changeSets;
+        }
+
+    }
+
+    /**
+     * Description of the change log fingerprint.
+     */
+    public static final class FingerprintDescriptor {
+
+        private final String current;
+
+        private final String applied;
+
+        private FingerprintDescriptor(String current, String applied) {
+            this.current = current;
+            this.applied = applied;
+        }
+
+        public String getCurrent() {
+            return this.current;
+        }
+
+        public String getApplied() {
+            return this.applied;
+        }
+
+        public boolean isUpToDate() {
+            return this.current.equals(this.applied);
+        }
+
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * {@link HealthIndicator} that reports the application as out of service until the
+ * Mongeez migration has completed.
+ *
+ * @author Timo Kockert
+ */
+public class MongeezHealthIndicator extends AbstractHealthIndicator {
+
+    private final MigrationState migrationState;
+
+    public MongeezHealthIndicator(MigrationState migrationState) {
+        super("Mongeez health check failed");
+        this.migrationState = migrationState;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        MigrationState.Status status = this.migrationState.getStatus();
+        switch (status) {
+            case COMPLETED:
+                builder.up();
+                break;
+            case FAILED:
+                builder.down(this.migrationState.getFailure());
+                break;
+            default:
+                builder.outOfService();
+        }
+        builder.withDetail("status", status);
+    }
+
+}
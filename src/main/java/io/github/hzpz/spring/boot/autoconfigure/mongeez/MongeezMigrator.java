@@ -0,0 +1,505 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.DB;
+import com.mongodb.Mongo;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mongeez.Mongeez;
+import org.mongeez.MongoAuth;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link Mongeez} that loads all executed change sets with a single query and can skip
+ * the migration entirely if the change logs have already been applied.
+ * <p>
+ * In fingerprint mode, a hash over the main change log file and all included files
+ * is stored in the Mongeez collection after each successful migration. If the hash
+ * is unchanged on the next run, the change logs are neither parsed nor is the
+ * Mongeez collection queried for executed change sets.
+ * <p>
+ * If a lock is configured, only one application instance migrates at a time. Others
+ * wait for the lock and check the fingerprint again once they hold it, which usually
+ * means there is nothing left to do.
+ * <p>
+ * In asynchronous mode, {@link #process()} returns immediately and the migration runs
+ * on a dedicated thread. Its progress is tracked by {@link MigrationState}. In plan mode,
+ * the pending change sets are logged as {@link MigrationPlan} instead of being executed.
+ * <p>
+ * {@link MigrationListener MigrationListeners} are notified about the progress of the
+ * migration, including the time spent waiting for the lock, parsing and executing.
+ * <p>
+ * If a {@link MigrationMongoClient} is configured, the migration runs with it instead of
+ * the application's client, which is still used to report the state of the migration.
+ *
+ * @author Timo Kockert
+ * @see BatchingChangeSetExecutor
+ * @see MigrationLock
+ */
+public class MongeezMigrator extends Mongeez {
+
+    private static final Log logger = LogFactory.getLog(MongeezMigrator.class);
+
+    private final ChangeLogReader changeLogReader = new ChangeLogReader();
+
+    private Mongo mongo;
+
+    private MigrationMongoClient migrationClient;
+
+    private String dbName;
+
+    private MongoAuth auth;
+
+    private String context;
+
+    private Resource file;
+
+    private ChangeLogs changeLogs;
+
+    private boolean fingerprintEnabled;
+
+    private MongeezProperties.Lock lock;
+
+    private MongeezProperties.Parallel parallel;
+
+    private int bulkWriteBatchSize = MongeezProperties.BulkWrite.DEFAULT_BATCH_SIZE;
+
+    private MongeezProperties.IndexBuild indexBuild = new MongeezProperties.IndexBuild();
+
+    private boolean validateChecksums;
+
+    private MongeezProperties.Chunked chunked = new MongeezProperties.Chunked();
+
+    private List<ChunkedMigration> chunkedMigrations = Collections.emptyList();
+
+    private MongeezProperties.Mode mode = MongeezProperties.Mode.SYNC;
+
+    private MigrationState migrationState = new MigrationState();
+
+    private MigrationListener listener = new CompositeMigrationListener(Collections.emptyList());
+
+    private MigrationHistory history;
+
+    @Override
+    public void setMongo(Mongo mongo) {
+        super.setMongo(mongo);
+        this.mongo = mongo;
+    }
+
+    /**
+     * Run migrations with a dedicated client, which is released once they have finished.
+     * @param migrationClient the client or {@code null} to use the application's client
+     */
+    public void setMigrationClient(MigrationMongoClient migrationClient) {
+        this.migrationClient = migrationClient;
+    }
+
+    @Override
+    public void setDbName(String dbName) {
+        super.setDbName(dbName);
+        this.dbName = dbName;
+    }
+
+    @Override
+    public void setAuth(MongoAuth auth) {
+        super.setAuth(auth);
+        this.auth = auth;
+    }
+
+    @Override
+    public void setContext(String context) {
+        super.setContext(context);
+        this.context = context;
+    }
+
+    @Override
+    public void setFile(Resource file) {
+        // not passed on to Mongeez, whose file provider would load its XML parsing classes
+        this.file = file;
+        this.changeLogs = new ChangeLogs(file, this.changeLogReader);
+    }
+
+    /**
+     * Use change logs compiled at build time instead of resolving and parsing them.
+     * Must be called after {@link #setFile(Resource)}.
+     * @param index the index compiled from the change logs
+     * @param required whether to fail instead of parsing the change logs if the index is
+     * stale
+     */
+    void setChangeLogIndex(ChangeLogIndex index, boolean required) {
+        this.changeLogs = new ChangeLogs(this.file, this.changeLogReader, index, required);
+    }
+
+    public void setCacheDirectory(File cacheDirectory) {
+        this.changeLogReader.setCache(cacheDirectory != null ? new ChangeLogCache(cacheDirectory.toPath()) : null);
+    }
+
+    public void setFingerprintEnabled(boolean fingerprintEnabled) {
+        this.fingerprintEnabled = fingerprintEnabled;
+    }
+
+    public void setLock(MongeezProperties.Lock lock) {
+        this.lock = lock;
+    }
+
+    public void setParallel(MongeezProperties.Parallel parallel) {
+        this.parallel = parallel;
+    }
+
+    public void setBulkWriteBatchSize(int bulkWriteBatchSize) {
+        this.bulkWriteBatchSize = bulkWriteBatchSize;
+    }
+
+    public void setIndexBuild(MongeezProperties.IndexBuild indexBuild) {
+        this.indexBuild = indexBuild;
+    }
+
+    public void setValidateChecksums(boolean validateChecksums) {
+        this.validateChecksums = validateChecksums;
+    }
+
+    public void setChunked(MongeezProperties.Chunked chunked) {
+        this.chunked = chunked;
+    }
+
+    public void setChunkedMigrations(List<ChunkedMigration> chunkedMigrations) {
+        this.chunkedMigrations = chunkedMigrations;
+    }
+
+    public void setMode(MongeezProperties.Mode mode) {
+        this.mode = mode;
+    }
+
+    public void setMigrationState(MigrationState migrationState) {
+        this.migrationState = migrationState;
+    }
+
+    public void setListeners(List<MigrationListener> listeners) {
+        this.listener = new CompositeMigrationListener(listeners);
+    }
+
+    /**
+     * Use the given history to estimate the durations of change sets in plan mode.
+     * @param history the history or {@code null} to only use the Mongeez collection
+     */
+    public void setHistory(MigrationHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    public void process() {
+        if (this.mode == MongeezProperties.Mode.PLAN) {
+            this.migrationState.run(() -> {
+                MongeezTrackingCollection trackingCollection = getTrackingCollection();
+                logger.info(plan(trackingCollection.findExecutions(), trackingCollection.isResourcePathSupported(),
+                        this.history != null ? this.history.findExecutions(this.dbName) : Collections.emptyList())
+                        .format());
+            });
+            return;
+        }
+        if (this.migrationClient != null) {
+            this.migrationClient.retain();
+        }
+        if (this.mode != MongeezProperties.Mode.ASYNC) {
+            this.migrationState.run(this::processChangeLogs);
+            return;
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("mongeez-"));
+        executor.execute(() -> {
+            try {
+                this.migrationState.run(this::processChangeLogs);
+            } catch (RuntimeException ex) {
+                logger.error("Mongeez migration failed", ex);
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void processChangeLogs() {
+        long start = System.nanoTime();
+        this.listener.migrationStarted(this.dbName);
+        CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+        try {
+            completion = processChangeLogsIfNecessary();
+        } catch (RuntimeException ex) {
+            this.listener.migrationFinished(this.dbName, Duration.ofNanos(System.nanoTime() - start), ex);
+            throw ex;
+        } finally {
+            if (this.migrationClient != null) {
+                // keep the client while indexes are built in the background
+                completion.whenComplete((result, ex) -> this.migrationClient.release());
+            }
+        }
+        this.listener.migrationFinished(this.dbName, Duration.ofNanos(System.nanoTime() - start), null);
+    }
+
+    /**
+     * Execute all pending change sets unless the change logs have not changed.
+     * @return a future that completes once all index builds started in the background
+     * have finished
+     */
+    private CompletableFuture<Void> processChangeLogsIfNecessary() {
+        Mongo mongo = getMigrationMongo();
+        MongeezTrackingCollection trackingCollection = new MongeezTrackingCollection(mongo, this.dbName);
+        String fingerprint = this.fingerprintEnabled ? getFingerprint() : null;
+        if (isUpToDate(trackingCollection, fingerprint)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (this.lock == null || !this.lock.isEnabled()) {
+            return migrate(trackingCollection, fingerprint);
+        }
+        MigrationLock migrationLock = new MigrationLock(mongo, this.dbName, this.lock);
+        Duration waited = migrationLock.acquire();
+        logger.debug("Acquired Mongeez lock after " + waited.toMillis() + " ms");
+        this.listener.lockAcquired(this.dbName, waited);
+        CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+        try {
+            if (!isUpToDate(trackingCollection, fingerprint)) {
+                completion = migrate(trackingCollection, fingerprint);
+            }
+        } finally {
+            // keep the lock while indexes are built in the background
+            completion.whenComplete((result, ex) -> migrationLock.release());
+        }
+        return completion;
+    }
+
+    private boolean isUpToDate(MongeezTrackingCollection trackingCollection, String fingerprint) {
+        if (fingerprint != null && fingerprint.equals(trackingCollection.findFingerprint())) {
+            logger.info("Mongeez change logs have not changed since last migration, skipping");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Execute all pending change sets.
+     * @param trackingCollection the Mongeez collection
+     * @param fingerprint the fingerprint to save or {@code null} if fingerprints are disabled
+     * @return a future that completes once all index builds started in the background
+     * have finished
+     */
+    private CompletableFuture<Void> migrate(MongeezTrackingCollection trackingCollection, String fingerprint) {
+        long start = System.nanoTime();
+        List<ChangeSet> changeSets = getChangeSets();
+        this.listener.changeLogsParsed(this.dbName, changeSets.size(), Duration.ofNanos(System.nanoTime() - start));
+        BatchingChangeSetExecutor executor = new BatchingChangeSetExecutor(createScriptRunner(), trackingCollection,
+                this.dbName, this.context, this.listener);
+        executor.setBulkWriter(new BulkWriteChangeSetWriter(getDatabase(), this.bulkWriteBatchSize));
+        IndexChangeSetBuilder indexBuilder = new IndexChangeSetBuilder(getDatabase(), this.listener);
+        indexBuilder.setBackground(this.indexBuild.isBackground());
+        indexBuilder.setProgressInterval(this.indexBuild.getProgressInterval());
+        executor.setIndexBuilder(indexBuilder);
+        executor.setAsyncIndexBuilds(this.indexBuild.isAsync());
+        executor.setChecksums(this.changeLogs::getChecksum);
+        executor.setValidateChecksums(this.validateChecksums);
+        if (this.parallel != null) {
+            executor.setParallelism(this.parallel.getParallelism());
+            executor.setGroups(this.parallel.getGroups());
+        }
+        executor.execute(changeSets);
+        runChunkedMigrations(trackingCollection);
+        // only save the fingerprint once index change sets running in the background have been recorded
+        return executor.getIndexBuildCompletion().thenRun(() -> {
+            if (fingerprint != null) {
+                trackingCollection.saveFingerprint(fingerprint);
+            }
+        });
+    }
+
+    private void runChunkedMigrations(MongeezTrackingCollection trackingCollection) {
+        if (this.chunkedMigrations.isEmpty()) {
+            return;
+        }
+        Set<ChangeSetKey> executed = trackingCollection.findExecutedChangeSets();
+        ChunkedMigrationRunner runner = new ChunkedMigrationRunner(getDatabase());
+        runner.setBatchSize(this.chunked.getBatchSize());
+        runner.setMaxDocumentsPerSecond(this.chunked.getMaxDocumentsPerSecond());
+        for (ChunkedMigration migration : this.chunkedMigrations) {
+            ChangeSet changeSet = ChunkedMigrationRunner.toChangeSet(migration);
+            if (executed.contains(trackingCollection.keyOf(changeSet))) {
+                this.listener.changeSetSkipped(this.dbName, changeSet);
+                continue;
+            }
+            long start = System.nanoTime();
+            long processed;
+            try {
+                processed = runner.run(migration);
+            } catch (RuntimeException ex) {
+                this.listener.changeSetFailed(this.dbName, changeSet, Duration.ofNanos(System.nanoTime() - start), ex);
+                throw ex;
+            }
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            trackingCollection.logChangeSet(changeSet, duration);
+            this.listener.documentsAffected(this.dbName, changeSet, processed);
+            this.listener.changeSetExecuted(this.dbName, changeSet, duration);
+            logger.info("Chunked migration " + migration.getId() + " has processed " + processed + " documents");
+        }
+    }
+
+    /**
+     * Determine which change sets a migration would execute without executing them.
+     * @param executions the recorded executions of the database to migrate
+     * @param resourcePath whether the keys of the recorded executions include the
+     * resource path
+     * @param history additional executions to estimate durations from, e.g. of another
+     * environment
+     * @return the migration plan
+     */
+    MigrationPlan plan(List<ChangeSetExecution> executions, boolean resourcePath, List<ChangeSetExecution> history) {
+        Set<ChangeSetKey> executed = new HashSet<>();
+        Map<ChangeSetKey, Duration> durations = new HashMap<>();
+        for (ChangeSetExecution execution : history) {
+            if (execution.getDuration() != null) {
+                durations.put(execution.getKey().withoutResourcePath(), execution.getDuration());
+            }
+        }
+        for (ChangeSetExecution execution : executions) {
+            executed.add(execution.getKey());
+            if (execution.getDuration() != null) {
+                durations.put(execution.getKey().withoutResourcePath(), execution.getDuration());
+            }
+        }
+        List<ChangeSet> pending = findPendingChangeSets(executed, resourcePath);
+        for (ChunkedMigration migration : this.chunkedMigrations) {
+            ChangeSet changeSet = ChunkedMigrationRunner.toChangeSet(migration);
+            if (!executed.contains(ChangeSetKey.of(changeSet, resourcePath))) {
+                pending.add(changeSet);
+            }
+        }
+        return MigrationPlan.create(pending, durations);
+    }
+
+    /**
+     * Return the fingerprint of the change logs, including the ids of chunked migrations
+     * so that new chunked migrations are not skipped.
+     * @return the fingerprint
+     */
+    String getFingerprint() {
+        String fingerprint = getChangeLogFingerprint();
+        if (this.chunkedMigrations.isEmpty()) {
+            return fingerprint;
+        }
+        List<String> ids = new ArrayList<>();
+        for (ChunkedMigration migration : this.chunkedMigrations) {
+            ids.add(migration.getId());
+        }
+        return ChangeLogFingerprint.compute(fingerprint, ids);
+    }
+
+    /**
+     * Create a migrator for another database with the same configuration. The migrator
+     * shares the change logs with this migrator, so they are only parsed once.
+     * @param database the database to migrate
+     * @return the migrator, running synchronously unless in plan mode
+     */
+    MongeezMigrator forDatabase(String database) {
+        MongeezMigrator migrator = new MongeezMigrator();
+        migrator.setMongo(this.mongo);
+        migrator.migrationClient = this.migrationClient;
+        migrator.setDbName(database);
+        if (this.auth != null) {
+            migrator.setAuth(this.auth);
+        }
+        if (this.context != null) {
+            migrator.setContext(this.context);
+        }
+        migrator.setFile(this.file);
+        migrator.changeLogs = this.changeLogs;
+        if (this.mode == MongeezProperties.Mode.PLAN) {
+            migrator.mode = this.mode;
+        }
+        migrator.fingerprintEnabled = this.fingerprintEnabled;
+        migrator.lock = this.lock;
+        migrator.parallel = this.parallel;
+        migrator.bulkWriteBatchSize = this.bulkWriteBatchSize;
+        migrator.indexBuild = this.indexBuild;
+        migrator.validateChecksums = this.validateChecksums;
+        migrator.chunked = this.chunked;
+        migrator.chunkedMigrations = this.chunkedMigrations;
+        migrator.listener = this.listener;
+        migrator.history = this.history;
+        return migrator;
+    }
+
+    String getDatabaseName() {
+        return this.dbName;
+    }
+
+    private Mongo getMigrationMongo() {
+        return this.migrationClient != null ? this.migrationClient.getMongo() : this.mongo;
+    }
+
+    @SuppressWarnings("deprecation")
+    private DB getDatabase() {
+        return getMigrationMongo().getDB(this.dbName);
+    }
+
+    /**
+     * Create the runner for the scripts of change sets, which uses the same client as
+     * the rest of the migration instead of a new client like Mongeez.
+     * @return the script runner
+     */
+    ScriptRunner createScriptRunner() {
+        return new ScriptRunner(getDatabase());
+    }
+
+    MongeezTrackingCollection getTrackingCollection() {
+        return new MongeezTrackingCollection(this.mongo, this.dbName);
+    }
+
+    List<Resource> getChangeLogFiles() {
+        return this.changeLogs.getFiles();
+    }
+
+    String getChangeLogFingerprint() {
+        return this.changeLogs.getFingerprint();
+    }
+
+    List<ChangeSet> getChangeSets() {
+        return this.changeLogs.getChangeSets();
+    }
+
+    String getChecksum(ChangeSet changeSet) {
+        return this.changeLogs.getChecksum(changeSet);
+    }
+
+    List<ChangeSet> findPendingChangeSets(Set<ChangeSetKey> executed, boolean resourcePath) {
+        List<ChangeSet> pending = new ArrayList<>();
+        for (ChangeSet changeSet : getChangeSets()) {
+            if (BatchingChangeSetExecutor.isPending(changeSet, executed, resourcePath, this.context)) {
+                pending.add(changeSet);
+            }
+        }
+        return pending;
+    }
+
+}
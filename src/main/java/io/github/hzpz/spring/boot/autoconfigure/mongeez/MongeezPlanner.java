@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Standalone entry point that prints the change sets a migration would execute, with
+ * their durations estimated from previous executions, without changing the database.
+ * <p>
+ * Reads the same {@code mongeez.*} properties as the auto-configuration, e.g. from
+ * {@code application.properties} or command line arguments. With
+ * {@code --mongeez.plan.snapshot=file:mongeez.json}, the plan is computed from an export
+ * of the Mongeez collection without connecting to a database. Otherwise, the Mongeez
+ * collection is read using the {@code spring.data.mongodb.*} properties. With
+ * {@code --mongeez.plan.history=file:staging.json}, durations are also estimated from
+ * the executions of another environment.
+ *
+ * @author Timo Kockert
+ */
+@Configuration
+@EnableConfigurationProperties({MongoProperties.class, MongeezProperties.class})
+public class MongeezPlanner {
+
+    public static void main(String[] args) {
+        System.out.println(plan(args).format());
+    }
+
+    /**
+     * Compute the migration plan.
+     * @param args the command line arguments
+     * @return the migration plan
+     */
+    public static MigrationPlan plan(String... args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MongeezPlanner.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args)) {
+            return plan(context);
+        }
+    }
+
+    private static MigrationPlan plan(ConfigurableApplicationContext context) {
+        MongeezProperties properties = context.getBean(MongeezProperties.class);
+        MongeezMigrator migrator = new MongeezMigrator();
+        MongeezAutoConfiguration.MongeezConfiguration.configureChangeLogs(migrator, properties, context);
+        List<ChangeSetExecution> executions;
+        boolean resourcePath;
+        if (properties.getPlan().getSnapshot() != null) {
+            TrackingSnapshot snapshot = TrackingSnapshot.read(properties.getPlan().getSnapshot());
+            executions = snapshot.getExecutions();
+            resourcePath = snapshot.isResourcePathSupported();
+        } else {
+            String database = properties.getDatabase();
+            if (StringUtils.isEmpty(database)) {
+                database = context.getBean(MongoProperties.class).getMongoClientDatabase();
+            }
+            MongeezTrackingCollection trackingCollection = new MongeezTrackingCollection(
+                    context.getBean(Mongo.class), database);
+            executions = trackingCollection.findExecutions();
+            resourcePath = trackingCollection.isResourcePathSupported();
+        }
+        List<ChangeSetExecution> history = properties.getPlan().getHistory() != null
+                ? TrackingSnapshot.read(properties.getPlan().getHistory()).getExecutions() : Collections.emptyList();
+        return migrator.plan(executions, resourcePath, history);
+    }
+
+    /**
+     * Connects to the database unless a snapshot of the Mongeez collection is given.
+     */
+    @Configuration
+    @ConditionalOnExpression("'${mongeez.plan.snapshot:}'.isEmpty()")
+    @ImportAutoConfiguration(MongoAutoConfiguration.class)
+    static class LiveDatabaseConfiguration {
+
+    }
+
+}
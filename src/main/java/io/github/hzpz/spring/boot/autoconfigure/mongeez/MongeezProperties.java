@@ -17,9 +17,17 @@ package io.github.hzpz.spring.boot.autoconfigure.mongeez;
 import org.mongeez.MongoAuth;
 import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
 import org.springframework.data.util.ReflectionUtils;
+import org.springframework.util.unit.DataSize;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -40,6 +48,11 @@ public class MongeezProperties {
      */
     private boolean enabled = true;
 
+    /**
+     * How to run migrations on startup.
+     */
+    private Mode mode = Mode.SYNC;
+
     /**
      * Login user of the database to migrate.
      */
@@ -60,6 +73,39 @@ public class MongeezProperties {
      */
     private String authenticationDatabase;
 
+    /**
+     * Fail startup if executed change sets have been modified. Checksums of change sets
+     * are recorded in the Mongeez collection when they are executed. Bulk write change
+     * sets are only checksummed by their header and the length of their data file.
+     */
+    private boolean validateChecksums;
+
+    private final Cache cache = new Cache();
+
+    private final Fingerprint fingerprint = new Fingerprint();
+
+    private final Lock lock = new Lock();
+
+    private final Parallel parallel = new Parallel();
+
+    private final BulkWrite bulkWrite = new BulkWrite();
+
+    private final Tenants tenants = new Tenants();
+
+    private final IndexBuild indexBuild = new IndexBuild();
+
+    private final Chunked chunked = new Chunked();
+
+    private final CompiledIndex compiledIndex = new CompiledIndex();
+
+    private final Plan plan = new Plan();
+
+    private final Client client = new Client();
+
+    private final History history = new History();
+
+    private final Reactive reactive = new Reactive();
+
     public String getLocation() {
         return this.location;
     }
@@ -76,6 +122,14 @@ public class MongeezProperties {
         this.enabled = enabled;
     }
 
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
     public String getUsername() {
         return this.username;
     }
@@ -108,6 +162,66 @@ public class MongeezProperties {
         this.authenticationDatabase = authenticationDatabase;
     }
 
+    public boolean isValidateChecksums() {
+        return this.validateChecksums;
+    }
+
+    public void setValidateChecksums(boolean validateChecksums) {
+        this.validateChecksums = validateChecksums;
+    }
+
+    public Cache getCache() {
+        return this.cache;
+    }
+
+    public Fingerprint getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public Lock getLock() {
+        return this.lock;
+    }
+
+    public Parallel getParallel() {
+        return this.parallel;
+    }
+
+    public BulkWrite getBulkWrite() {
+        return this.bulkWrite;
+    }
+
+    public Tenants getTenants() {
+        return this.tenants;
+    }
+
+    public IndexBuild getIndexBuild() {
+        return this.indexBuild;
+    }
+
+    public Chunked getChunked() {
+        return this.chunked;
+    }
+
+    public CompiledIndex getCompiledIndex() {
+        return this.compiledIndex;
+    }
+
+    public Plan getPlan() {
+        return this.plan;
+    }
+
+    public Client getClient() {
+        return this.client;
+    }
+
+    public History getHistory() {
+        return this.history;
+    }
+
+    public Reactive getReactive() {
+        return this.reactive;
+    }
+
     public boolean hasCredentials() {
         return this.username != null && this.password != null;
     }
@@ -130,14 +244,18 @@ public class MongeezProperties {
         }
     }
 
-    // Work around breaking change introduced in Mongeez 0.9.6.
+    // Work around breaking change introduced in Mongeez 0.9.6. The constructor of 0.9.6 is
+    // called directly, so no reflection is needed unless an older version is used.
     private MongoAuth instantiateMongoAuth(String username, String password, String authDb) {
-        Optional<Constructor<?>> constructor = ReflectionUtils.findConstructor(MongoAuth.class, username, password, authDb);
-        if (constructor.isPresent()) {
-            return (MongoAuth) BeanUtils.instantiateClass(constructor.get(), username, password, authDb);
+        try {
+            return new MongoAuth(username, password, authDb);
+        } catch (NoSuchMethodError ex) {
+            return instantiateLegacyMongoAuth(username, password);
         }
+    }
 
-        constructor = ReflectionUtils.findConstructor(MongoAuth.class, username, password);
+    private MongoAuth instantiateLegacyMongoAuth(String username, String password) {
+        Optional<Constructor<?>> constructor = ReflectionUtils.findConstructor(MongoAuth.class, username, password);
         if (constructor.isPresent()) {
             return (MongoAuth) BeanUtils.instantiateClass(constructor.get(), username, password);
         }
@@ -146,4 +264,615 @@ public class MongeezProperties {
                 "Are you using a supported Mongeez version?");
     }
 
+    public enum Mode {
+
+        /**
+         * Run migrations before any Spring Data MongoDB beans are initialized.
+         */
+        SYNC,
+
+        /**
+         * Run migrations in the background without blocking startup.
+         */
+        ASYNC,
+
+        /**
+         * Log the change sets that would be executed, with their durations estimated
+         * from previous executions, without executing them.
+         */
+        PLAN
+
+    }
+
+    public static class Cache {
+
+        /**
+         * Directory to cache parsed change log files in. Unchanged change log files are
+         * read from the cache instead of being parsed again. Caching is disabled if not set.
+         */
+        private File directory;
+
+        public File getDirectory() {
+            return this.directory;
+        }
+
+        public void setDirectory(File directory) {
+            this.directory = directory;
+        }
+
+    }
+
+    public static class Fingerprint {
+
+        /**
+         * Skip Mongeez if the change logs did not change since the last successful migration.
+         */
+        private boolean enabled;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+    }
+
+    public static class Lock {
+
+        /**
+         * Acquire a lock in the database before migrating, so that only one application
+         * instance runs Mongeez at a time.
+         */
+        private boolean enabled;
+
+        /**
+         * Time after which the lock expires unless renewed by its owner.
+         */
+        private Duration leaseTime = Duration.ofSeconds(30);
+
+        /**
+         * Maximum time to wait for the lock to become available.
+         */
+        private Duration maxWait = Duration.ofMinutes(5);
+
+        /**
+         * Initial time to wait before trying to acquire the lock again.
+         */
+        private Duration initialBackoff = Duration.ofMillis(500);
+
+        /**
+         * Maximum time to wait before trying to acquire the lock again.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getLeaseTime() {
+            return this.leaseTime;
+        }
+
+        public void setLeaseTime(Duration leaseTime) {
+            this.leaseTime = leaseTime;
+        }
+
+        public Duration getMaxWait() {
+            return this.maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Duration getInitialBackoff() {
+            return this.initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return this.maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+    }
+
+    public static class Parallel {
+
+        /**
+         * Maximum number of change set groups to execute concurrently. Change sets are
+         * grouped by change log file, so a value greater than 1 requires change log files
+         * to be independent of each other.
+         */
+        private int parallelism = 1;
+
+        /**
+         * Group names by change log file name. Change log files of the same group are
+         * executed sequentially in the order of the main change log. Files without an
+         * explicit group form a group of their own.
+         */
+        private Map<String, String> groups = new LinkedHashMap<>();
+
+        public int getParallelism() {
+            return this.parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public Map<String, String> getGroups() {
+            return this.groups;
+        }
+
+        public void setGroups(Map<String, String> groups) {
+            this.groups = groups;
+        }
+
+    }
+
+    public static class BulkWrite {
+
+        static final int DEFAULT_BATCH_SIZE = 1000;
+
+        /**
+         * Number of documents per bulk write when executing newline delimited JSON change
+         * logs. Can be overridden per change log with "batchSize" in its header.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+    }
+
+    public static class Tenants {
+
+        /**
+         * Names of additional tenant databases to migrate with the same change logs.
+         */
+        private List<String> databases = new ArrayList<>();
+
+        /**
+         * Regular expression for names of existing databases to migrate as tenants.
+         */
+        private String databasePattern;
+
+        /**
+         * Maximum number of tenant databases to migrate concurrently.
+         */
+        private int parallelism = 4;
+
+        /**
+         * Fail startup if the migration of any tenant database has failed. Tenants are
+         * always migrated independently of each other.
+         */
+        private boolean failOnError = true;
+
+        public List<String> getDatabases() {
+            return this.databases;
+        }
+
+        public void setDatabases(List<String> databases) {
+            this.databases = databases;
+        }
+
+        public String getDatabasePattern() {
+            return this.databasePattern;
+        }
+
+        public void setDatabasePattern(String databasePattern) {
+            this.databasePattern = databasePattern;
+        }
+
+        public int getParallelism() {
+            return this.parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public boolean isFailOnError() {
+            return this.failOnError;
+        }
+
+        public void setFailOnError(boolean failOnError) {
+            this.failOnError = failOnError;
+        }
+
+    }
+
+    public static class IndexBuild {
+
+        /**
+         * Build indexes of index change logs in the background unless their options say
+         * otherwise. Ignored by MongoDB 4.2 and later, which always use hybrid builds.
+         */
+        private boolean background = true;
+
+        /**
+         * Continue startup while indexes are built. Index change sets are recorded once
+         * their indexes have been built.
+         */
+        private boolean async;
+
+        /**
+         * Interval in which the progress of index builds is reported.
+         */
+        private Duration progressInterval = Duration.ofSeconds(10);
+
+        public boolean isBackground() {
+            return this.background;
+        }
+
+        public void setBackground(boolean background) {
+            this.background = background;
+        }
+
+        public boolean isAsync() {
+            return this.async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public Duration getProgressInterval() {
+            return this.progressInterval;
+        }
+
+        public void setProgressInterval(Duration progressInterval) {
+            this.progressInterval = progressInterval;
+        }
+
+    }
+
+    public static class Chunked {
+
+        static final int DEFAULT_BATCH_SIZE = 1000;
+
+        /**
+         * Number of documents per chunk of chunked migrations. A checkpoint is saved
+         * after each chunk.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        /**
+         * Maximum number of documents per second processed by chunked migrations, to
+         * limit the load on the database. Unlimited if 0.
+         */
+        private int maxDocumentsPerSecond;
+
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxDocumentsPerSecond() {
+            return this.maxDocumentsPerSecond;
+        }
+
+        public void setMaxDocumentsPerSecond(int maxDocumentsPerSecond) {
+            this.maxDocumentsPerSecond = maxDocumentsPerSecond;
+        }
+
+    }
+
+    public static class CompiledIndex {
+
+        /**
+         * Load change logs compiled at build time by the Mongeez Maven plugin, if present,
+         * instead of resolving and parsing them on startup.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Location of the compiled change log index.
+         */
+        private String location = "classpath:" + ChangeLogIndex.DEFAULT_LOCATION;
+
+        /**
+         * Fail on startup if no compiled change log index is found or it is stale, e.g. in
+         * native images, where parsing change logs at runtime would require reflection.
+         * Also fails if the compiled index is disabled.
+         */
+        private boolean required;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getLocation() {
+            return this.location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location;
+        }
+
+        public boolean isRequired() {
+            return this.required;
+        }
+
+        public void setRequired(boolean required) {
+            this.required = required;
+        }
+
+    }
+
+    public static class Plan {
+
+        /**
+         * Export of the Mongeez collection to plan against instead of the live database,
+         * e.g. "file:mongeez.json" as written by mongoexport. Only used by MongeezPlanner.
+         */
+        private Resource snapshot;
+
+        /**
+         * Export of the Mongeez collection of another environment to estimate durations
+         * of change sets from, e.g. of a staging environment. Only used by MongeezPlanner.
+         */
+        private Resource history;
+
+        public Resource getSnapshot() {
+            return this.snapshot;
+        }
+
+        public void setSnapshot(Resource snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public Resource getHistory() {
+            return this.history;
+        }
+
+        public void setHistory(Resource history) {
+            this.history = history;
+        }
+
+    }
+
+    public static class Client {
+
+        /**
+         * Run migrations with a dedicated client instead of the application's client, so
+         * they cannot exhaust its connection pool. The client is closed once migrations
+         * have finished.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of connections of the dedicated client. Defaults to the number
+         * of change sets that can be executed concurrently according to
+         * "mongeez.parallel.parallelism" and "mongeez.tenants.parallelism", but at least 2.
+         */
+        private Integer maxPoolSize;
+
+        /**
+         * Minimum number of connections of the dedicated client.
+         */
+        private int minPoolSize;
+
+        /**
+         * Maximum time to wait for a connection of the dedicated client to become
+         * available.
+         */
+        private Duration maxWaitTime = Duration.ofMinutes(2);
+
+        /**
+         * Connect timeout of the dedicated client.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Socket timeout of the dedicated client. No timeout if 0.
+         */
+        private Duration socketTimeout = Duration.ZERO;
+
+        /**
+         * Maximum time to wait for a suitable server to be selected.
+         */
+        private Duration serverSelectionTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Read concern of the dedicated client, e.g. "majority". Uses the server default
+         * if not set.
+         */
+        private String readConcern;
+
+        /**
+         * Write concern of the dedicated client, e.g. "majority". Uses the default of the
+         * connection string if not set.
+         */
+        private String writeConcern;
+
+        /**
+         * Read preference of the dedicated client, e.g. "primary".
+         */
+        private String readPreference;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Integer getMaxPoolSize() {
+            return this.maxPoolSize;
+        }
+
+        public void setMaxPoolSize(Integer maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+
+        public int getMinPoolSize() {
+            return this.minPoolSize;
+        }
+
+        public void setMinPoolSize(int minPoolSize) {
+            this.minPoolSize = minPoolSize;
+        }
+
+        public Duration getMaxWaitTime() {
+            return this.maxWaitTime;
+        }
+
+        public void setMaxWaitTime(Duration maxWaitTime) {
+            this.maxWaitTime = maxWaitTime;
+        }
+
+        public Duration getConnectTimeout() {
+            return this.connectTimeout;
+        }
+
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public Duration getSocketTimeout() {
+            return this.socketTimeout;
+        }
+
+        public void setSocketTimeout(Duration socketTimeout) {
+            this.socketTimeout = socketTimeout;
+        }
+
+        public Duration getServerSelectionTimeout() {
+            return this.serverSelectionTimeout;
+        }
+
+        public void setServerSelectionTimeout(Duration serverSelectionTimeout) {
+            this.serverSelectionTimeout = serverSelectionTimeout;
+        }
+
+        public String getReadConcern() {
+            return this.readConcern;
+        }
+
+        public void setReadConcern(String readConcern) {
+            this.readConcern = readConcern;
+        }
+
+        public String getWriteConcern() {
+            return this.writeConcern;
+        }
+
+        public void setWriteConcern(String writeConcern) {
+            this.writeConcern = writeConcern;
+        }
+
+        public String getReadPreference() {
+            return this.readPreference;
+        }
+
+        public void setReadPreference(String readPreference) {
+            this.readPreference = readPreference;
+        }
+
+    }
+
+    public static class History {
+
+        /**
+         * Record each migration with its timings in the capped collection
+         * "mongeezHistory" of the migrated database.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum size of the history collection.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(1);
+
+        /**
+         * Maximum number of runs kept in the history collection.
+         */
+        private int maxRuns = 1000;
+
+        /**
+         * Version of the application to record with each run. Defaults to the version
+         * of the build info, if available.
+         */
+        private String version;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxSize() {
+            return this.maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getMaxRuns() {
+            return this.maxRuns;
+        }
+
+        public void setMaxRuns(int maxRuns) {
+            this.maxRuns = maxRuns;
+        }
+
+        public String getVersion() {
+            return this.version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+    }
+
+    public static class Reactive {
+
+        /**
+         * Run migrations with the reactive MongoClient even if a blocking Mongo bean is
+         * available. Without it, the reactive MongoClient is only used if there is no
+         * blocking Mongo bean.
+         */
+        private boolean enabled;
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+    }
+
 }
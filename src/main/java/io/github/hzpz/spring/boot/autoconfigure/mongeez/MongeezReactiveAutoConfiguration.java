@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.mongeez.Mongeez;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.stream.Collectors;
+
+/**
+ * {@link EnableAutoConfiguration Auto-configuration} for Mongeez in applications that
+ * use the MongoDB Reactive Streams driver.
+ * <p>
+ * Mongeez depends on the blocking driver, so {@link MongoAutoConfiguration} usually
+ * provides a blocking {@link Mongo} bean as well. The reactive migrator is used if there
+ * is no such bean, e.g. because {@link MongoAutoConfiguration} is excluded, or if
+ * {@code mongeez.reactive.enabled} is set, in which case {@link MongeezAutoConfiguration}
+ * backs off.
+ *
+ * @author Timo Kockert
+ */
+@Configuration
+@ConditionalOnClass({Mongeez.class, MongoClient.class, Flux.class})
+@ConditionalOnBean(MongoClient.class)
+@Conditional(MongeezReactiveAutoConfiguration.ReactiveMigrationCondition.class)
+@ConditionalOnProperty(prefix = "mongeez", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties({MongoProperties.class, MongeezProperties.class})
+@AutoConfigureAfter({MongoAutoConfiguration.class, MongoReactiveAutoConfiguration.class})
+@AutoConfigureBefore(name = "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration")
+@Import(MongeezReactiveAutoConfiguration.MongeezReactiveDataMongoDependencyConfiguration.class)
+public class MongeezReactiveAutoConfiguration {
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+    @Bean(initMethod = "process")
+    @ConditionalOnMissingBean
+    public ReactiveMongeezMigrator reactiveMongeez(MongoClient mongoClient, MongoProperties mongoProperties,
+                                                   MongeezProperties mongeezProperties,
+                                                   ObjectProvider<MigrationListener> migrationListeners) {
+        Resource file = this.resourceLoader.getResource(mongeezProperties.getLocation());
+        Assert.state(file.exists(),
+                "Cannot find Mongeez migration script at '" + mongeezProperties.getLocation() + "'");
+        String database = StringUtils.isEmpty(mongeezProperties.getDatabase())
+                ? mongoProperties.getMongoClientDatabase() : mongeezProperties.getDatabase();
+        ReactiveMongeezMigrator mongeez = new ReactiveMongeezMigrator(mongoClient, database, file);
+        mongeez.setFingerprintEnabled(mongeezProperties.getFingerprint().isEnabled());
+        mongeez.setParallelism(mongeezProperties.getParallel().getParallelism());
+        mongeez.setGroups(mongeezProperties.getParallel().getGroups());
+        mongeez.setListeners(migrationListeners.orderedStream().collect(Collectors.toList()));
+        return mongeez;
+    }
+
+    /**
+     * Additional configuration to ensure that {@link ReactiveMongoDatabaseFactory} beans
+     * depend-on the reactive Mongeez bean.
+     */
+    @Configuration
+    @ConditionalOnClass(ReactiveMongoDatabaseFactory.class)
+    protected static class MongeezReactiveDataMongoDependencyConfiguration {
+
+        @Bean
+        public static BeanFactoryPostProcessor reactiveMongoDatabaseFactoryDependsOnPostProcessor() {
+            return new MongoDbFactoryDependsOnPostProcessor(ReactiveMongoDatabaseFactory.class, "reactiveMongeez");
+        }
+
+    }
+
+    static class ReactiveMigrationCondition extends AnyNestedCondition {
+
+        ReactiveMigrationCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnMissingBean(Mongo.class)
+        static class NoBlockingClient {
+
+        }
+
+        @ConditionalOnProperty(prefix = "mongeez.reactive", name = "enabled")
+        static class ReactiveEnabled {
+
+        }
+
+    }
+
+}
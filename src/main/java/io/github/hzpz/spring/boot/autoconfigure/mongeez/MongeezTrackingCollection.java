@@ -0,0 +1,266 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import org.mongeez.commands.ChangeSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Access to the collection Mongeez uses to keep track of executed change sets.
+ *
+ * @author Timo Kockert
+ */
+class MongeezTrackingCollection {
+
+    static final String COLLECTION_NAME = "mongeez";
+
+    static final String TYPE = "type";
+
+    static final String DATE = "date";
+
+    static final String FILE = "file";
+
+    static final String CHANGE_ID = "changeId";
+
+    static final String AUTHOR = "author";
+
+    static final String RESOURCE_PATH = "resourcePath";
+
+    static final String DURATION = "duration";
+
+    static final String CHECKSUM = "checksum";
+
+    static final String CHANGE_SET_EXECUTION_TYPE = "changeSetExecution";
+
+    static final String CONFIGURATION_TYPE = "configuration";
+
+    static final String SUPPORT_RESOURCE_PATH = "supportResourcePath";
+
+    static final String FINGERPRINT_TYPE = "fingerprint";
+
+    static final String FINGERPRINT = "fingerprint";
+
+    private static final String OBSOLETE_INDEX = "type_changeSetExecution_file_1_changeId_1_author_1_resourcePath_1";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final DBCollection collection;
+
+    private Boolean resourcePathSupported;
+
+    @SuppressWarnings("deprecation")
+    MongeezTrackingCollection(Mongo mongo, String database) {
+        this.collection = mongo.getDB(database).getCollection(COLLECTION_NAME);
+    }
+
+    /**
+     * Determine whether Mongeez identifies change sets by their resource path, too. Mongeez
+     * enables this in the configuration record of collections it creates, but not for
+     * existing collections without a configuration record.
+     * @return whether the resource path is part of the {@link ChangeSetKey}
+     */
+    boolean isResourcePathSupported() {
+        if (this.resourcePathSupported == null) {
+            DBObject configuration = this.collection.findOne(new BasicDBObject(TYPE, CONFIGURATION_TYPE));
+            this.resourcePathSupported = isResourcePathSupported(configuration,
+                    configuration == null && this.collection.count() == 0);
+        }
+        return this.resourcePathSupported;
+    }
+
+    /**
+     * Determine whether Mongeez identifies change sets by their resource path, too.
+     * @param configuration the configuration record or {@code null}
+     * @param empty whether the collection is empty
+     * @return whether the resource path is part of the {@link ChangeSetKey}
+     */
+    static boolean isResourcePathSupported(DBObject configuration, boolean empty) {
+        return configuration != null ? Boolean.TRUE.equals(configuration.get(SUPPORT_RESOURCE_PATH)) : empty;
+    }
+
+    /**
+     * Return the key Mongeez uses to look up executions of the given change set.
+     * @param changeSet the change set
+     * @return the key of the change set
+     */
+    ChangeSetKey keyOf(ChangeSet changeSet) {
+        return ChangeSetKey.of(changeSet, isResourcePathSupported());
+    }
+
+    /**
+     * Prepare the collection before change sets are executed the same way Mongeez does:
+     * records without a type are marked as change set executions, the configuration
+     * record is created if it is missing and the index Mongeez relies on is ensured.
+     */
+    void configure() {
+        this.collection.update(new BasicDBObject(TYPE, new BasicDBObject("$exists", false)),
+                new BasicDBObject("$set", new BasicDBObject(TYPE, CHANGE_SET_EXECUTION_TYPE)), false, true);
+        DBObject configuration = this.collection.findOne(new BasicDBObject(TYPE, CONFIGURATION_TYPE));
+        if (configuration == null) {
+            configuration = new BasicDBObject(TYPE, CONFIGURATION_TYPE)
+                    .append(SUPPORT_RESOURCE_PATH, this.collection.count() == 0);
+            this.collection.insert(configuration);
+        }
+        this.resourcePathSupported = isResourcePathSupported(configuration, false);
+        for (DBObject index : this.collection.getIndexInfo()) {
+            if (OBSOLETE_INDEX.equals(index.get("name"))) {
+                this.collection.dropIndex(OBSOLETE_INDEX);
+            }
+        }
+        ensureChangeSetExecutionIndex();
+    }
+
+    /**
+     * Ensure there is an index that covers the query in {@link #findExecutedChangeSets()}.
+     */
+    private void ensureChangeSetExecutionIndex() {
+        BasicDBObject index = new BasicDBObject(TYPE, 1)
+                .append(FILE, 1)
+                .append(CHANGE_ID, 1)
+                .append(AUTHOR, 1);
+        if (isResourcePathSupported()) {
+            index.append(RESOURCE_PATH, 1);
+        }
+        this.collection.createIndex(index);
+    }
+
+    /**
+     * Load the keys of all executed change sets using a single cursor.
+     * @return the keys of all executed change sets
+     */
+    Set<ChangeSetKey> findExecutedChangeSets() {
+        Set<ChangeSetKey> executed = new HashSet<>();
+        for (ChangeSetExecution execution : findExecutions()) {
+            executed.add(execution.getKey());
+        }
+        return executed;
+    }
+
+    /**
+     * Load all change set executions using a single cursor.
+     * @return all change set executions in the order they were recorded
+     */
+    List<ChangeSetExecution> findExecutions() {
+        DBObject query = new BasicDBObject(TYPE, CHANGE_SET_EXECUTION_TYPE);
+        DBObject projection = new BasicDBObject("_id", 0)
+                .append(FILE, 1)
+                .append(CHANGE_ID, 1)
+                .append(AUTHOR, 1)
+                .append(RESOURCE_PATH, 1)
+                .append(DATE, 1)
+                .append(DURATION, 1)
+                .append(CHECKSUM, 1);
+        List<ChangeSetExecution> executions = new ArrayList<>();
+        try (DBCursor cursor = this.collection.find(query, projection).batchSize(BATCH_SIZE)) {
+            for (DBObject document : cursor) {
+                executions.add(toExecution(document, isResourcePathSupported()));
+            }
+        }
+        return executions;
+    }
+
+    /**
+     * Convert a change set execution document of the Mongeez collection.
+     * @param document the document
+     * @param resourcePath whether the resource path is part of the key
+     * @return the change set execution
+     */
+    static ChangeSetExecution toExecution(DBObject document, boolean resourcePath) {
+        ChangeSetKey key = new ChangeSetKey((String) document.get(FILE), (String) document.get(CHANGE_ID),
+                (String) document.get(AUTHOR), resourcePath ? (String) document.get(RESOURCE_PATH) : null);
+        return new ChangeSetExecution(key, ChangeSetExecution.toInstant(document.get(DATE)),
+                ChangeSetExecution.toDuration(document.get(DURATION)), (String) document.get(CHECKSUM));
+    }
+
+    /**
+     * Record the execution of the given change set in the same format as Mongeez,
+     * additionally including the duration of the execution.
+     * @param changeSet the executed change set
+     * @param duration the time spent executing the change set
+     */
+    void logChangeSet(ChangeSet changeSet, Duration duration) {
+        logChangeSet(changeSet, duration, null);
+    }
+
+    /**
+     * Record the execution of the given change set including its checksum.
+     * @param changeSet the executed change set
+     * @param duration the time spent executing the change set
+     * @param checksum the checksum of the change set or {@code null}
+     */
+    void logChangeSet(ChangeSet changeSet, Duration duration, String checksum) {
+        BasicDBObject document = new BasicDBObject(TYPE, CHANGE_SET_EXECUTION_TYPE)
+                .append(FILE, changeSet.getFile())
+                .append(CHANGE_ID, changeSet.getChangeId())
+                .append(AUTHOR, changeSet.getAuthor())
+                .append(RESOURCE_PATH, changeSet.getResourcePath())
+                .append(DATE, new Date())
+                .append(DURATION, duration.toMillis());
+        if (checksum != null) {
+            document.append(CHECKSUM, checksum);
+        }
+        this.collection.insert(document);
+    }
+
+    /**
+     * Store checksums for executions that have been recorded without a checksum, e.g. by
+     * Mongeez itself, using a single bulk write.
+     * @param checksums the checksums by change set
+     */
+    void saveMissingChecksums(Map<ChangeSetKey, String> checksums) {
+        if (checksums.isEmpty()) {
+            return;
+        }
+        BulkWriteOperation bulk = this.collection.initializeUnorderedBulkOperation();
+        for (Map.Entry<ChangeSetKey, String> checksum : checksums.entrySet()) {
+            DBObject query = new BasicDBObject(TYPE, CHANGE_SET_EXECUTION_TYPE)
+                    .append(FILE, checksum.getKey().getFile())
+                    .append(CHANGE_ID, checksum.getKey().getChangeId())
+                    .append(AUTHOR, checksum.getKey().getAuthor())
+                    .append(CHECKSUM, new BasicDBObject("$exists", false));
+            if (isResourcePathSupported()) {
+                query.put(RESOURCE_PATH, checksum.getKey().getResourcePath());
+            }
+            bulk.find(query).update(new BasicDBObject("$set", new BasicDBObject(CHECKSUM, checksum.getValue())));
+        }
+        bulk.execute();
+    }
+
+    String findFingerprint() {
+        DBObject document = this.collection.findOne(new BasicDBObject(TYPE, FINGERPRINT_TYPE),
+                new BasicDBObject(FINGERPRINT, 1).append("_id", 0));
+        return document == null ? null : (String) document.get(FINGERPRINT);
+    }
+
+    void saveFingerprint(String fingerprint) {
+        DBObject update = new BasicDBObject("$set", new BasicDBObject(FINGERPRINT, fingerprint)
+                .append(DATE, new Date()));
+        this.collection.update(new BasicDBObject(TYPE, FINGERPRINT_TYPE), update, true, false);
+    }
+
+}
@@ -24,27 +24,39 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
+
 /**
  * {@link BeanFactoryPostProcessor} that can be used to dynamically declare that all
- * {@link MongoDbFactory} beans should "depend on" a specific bean.
+ * {@link MongoDbFactory} beans, or beans of another type such as
+ * {@code ReactiveMongoDatabaseFactory}, should "depend on" specific beans.
  *
  * @author Timo Kockert
  * @see BeanDefinition#setDependsOn(String[])
  */
 public class MongoDbFactoryDependsOnPostProcessor implements BeanFactoryPostProcessor {
 
-    private final String dependsOn;
+    private final Class<?> beanType;
+
+    private final String[] dependsOn;
+
+    public MongoDbFactoryDependsOnPostProcessor(String... dependsOn) {
+        this(MongoDbFactory.class, dependsOn);
+    }
 
-    public MongoDbFactoryDependsOnPostProcessor(String dependsOn) {
+    public MongoDbFactoryDependsOnPostProcessor(Class<?> beanType, String... dependsOn) {
+        this.beanType = beanType;
         this.dependsOn = dependsOn;
     }
 
     @Override
     public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        // beans such as the tenant migration scheduler are conditional
+        String[] dependsOn = Arrays.stream(this.dependsOn).filter(beanFactory::containsBean).toArray(String[]::new);
         for (String beanName : getMongoDbFactoryBeanNames(beanFactory)) {
             BeanDefinition definition = getBeanDefinition(beanName, beanFactory);
-            definition.setDependsOn(StringUtils.addStringToArray(
-                    definition.getDependsOn(), this.dependsOn));
+            definition.setDependsOn(StringUtils.concatenateStringArrays(
+                    definition.getDependsOn(), dependsOn));
         }
 
     }
@@ -65,7 +77,7 @@ public class MongoDbFactoryDependsOnPostProcessor implements BeanFactoryPostProc
 
     private String[] getMongoDbFactoryBeanNames(ListableBeanFactory beanFactory) {
         return BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
-                beanFactory, MongoDbFactory.class, true, false);
+                beanFactory, this.beanType, true, false);
     }
 
 }
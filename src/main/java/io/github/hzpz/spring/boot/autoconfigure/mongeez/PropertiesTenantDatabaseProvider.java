@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@link TenantDatabaseProvider} for the databases configured with
+ * {@code mongeez.tenants.*}. Existing databases are only listed if a database pattern
+ * is configured.
+ *
+ * @author Timo Kockert
+ */
+class PropertiesTenantDatabaseProvider implements TenantDatabaseProvider {
+
+    private final Mongo mongo;
+
+    private final String mainDatabase;
+
+    private final MongeezProperties.Tenants tenants;
+
+    PropertiesTenantDatabaseProvider(Mongo mongo, String mainDatabase, MongeezProperties.Tenants tenants) {
+        this.mongo = mongo;
+        this.mainDatabase = mainDatabase;
+        this.tenants = tenants;
+    }
+
+    @Override
+    public List<String> getDatabases() {
+        Set<String> databases = new LinkedHashSet<>();
+        for (String database : this.tenants.getDatabases()) {
+            addTenant(databases, database);
+        }
+        if (StringUtils.hasText(this.tenants.getDatabasePattern())) {
+            Pattern pattern = Pattern.compile(this.tenants.getDatabasePattern());
+            for (String database : listDatabaseNames()) {
+                if (pattern.matcher(database).matches()) {
+                    addTenant(databases, database);
+                }
+            }
+        }
+        return new ArrayList<>(databases);
+    }
+
+    private void addTenant(Set<String> databases, String database) {
+        if (!database.equals(this.mainDatabase)) {
+            databases.add(database);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private List<String> listDatabaseNames() {
+        return this.mongo.getDatabaseNames();
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.Document;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.Resource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Runs Mongeez change sets using the MongoDB Reactive Streams driver, so applications
+ * do not need a blocking client just for migrations.
+ * <p>
+ * Change sets are executed as a non-blocking pipeline. Like {@link MongeezMigrator}, it
+ * loads all executed change sets with a single query, groups pending change sets by
+ * change log file and executes up to {@code parallelism} groups concurrently.
+ *
+ * @author Timo Kockert
+ */
+public class ReactiveMongeezMigrator {
+
+    private static final Log logger = LogFactory.getLog(ReactiveMongeezMigrator.class);
+
+    private final ChangeLogReader changeLogReader = new ChangeLogReader();
+
+    private final MongoClient client;
+
+    private final String databaseName;
+
+    private final Resource file;
+
+    private String context;
+
+    private boolean fingerprintEnabled;
+
+    private int parallelism = 1;
+
+    private Map<String, String> groups = Collections.emptyMap();
+
+    private MigrationListener listener = new CompositeMigrationListener(Collections.emptyList());
+
+    public ReactiveMongeezMigrator(MongoClient client, String databaseName, Resource file) {
+        this.client = client;
+        this.databaseName = databaseName;
+        this.file = file;
+    }
+
+    public void setContext(String context) {
+        this.context = context;
+    }
+
+    public void setFingerprintEnabled(boolean fingerprintEnabled) {
+        this.fingerprintEnabled = fingerprintEnabled;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setGroups(Map<String, String> groups) {
+        this.groups = groups;
+    }
+
+    public void setListeners(List<MigrationListener> listeners) {
+        this.listener = new CompositeMigrationListener(listeners);
+    }
+
+    /**
+     * Run the migration and wait for it to complete. Used as init method, so that beans
+     * depending on this bean are not created before the database has been migrated.
+     */
+    public void process() {
+        migrate().block();
+    }
+
+    /**
+     * Return a {@link Mono} that runs the migration when subscribed to.
+     * @return the migration
+     */
+    public Mono<Void> migrate() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            this.listener.migrationStarted(this.databaseName);
+            MongoDatabase database = this.client.getDatabase(this.databaseName);
+            MongoCollection<Document> trackingCollection =
+                    database.getCollection(MongeezTrackingCollection.COLLECTION_NAME);
+            Mono<Void> migration = this.fingerprintEnabled
+                    ? migrateIfChanged(database, trackingCollection)
+                    : migrate(database, trackingCollection);
+            return migration
+                    .doOnSuccess((result) -> this.listener.migrationFinished(this.databaseName,
+                            Duration.ofNanos(System.nanoTime() - start), null))
+                    .doOnError((ex) -> this.listener.migrationFinished(this.databaseName,
+                            Duration.ofNanos(System.nanoTime() - start), ex));
+        });
+    }
+
+    private Mono<Void> migrateIfChanged(MongoDatabase database, MongoCollection<Document> trackingCollection) {
+        return Mono.fromCallable(this::computeFingerprint)
+                .subscribeOn(Schedulers.elastic())
+                .flatMap((fingerprint) -> findFingerprint(trackingCollection)
+                        .filter(fingerprint::equals)
+                        .doOnNext((unchanged) ->
+                                logger.info("Mongeez change logs have not changed since last migration, skipping"))
+                        .switchIfEmpty(Mono.defer(() -> migrate(database, trackingCollection)
+                                .then(saveFingerprint(trackingCollection, fingerprint))
+                                .thenReturn(fingerprint))))
+                .then();
+    }
+
+    private Mono<Void> migrate(MongoDatabase database, MongoCollection<Document> trackingCollection) {
+        Mono<List<ChangeSet>> changeSets = Mono.fromCallable(this::readChangeSets)
+                .subscribeOn(Schedulers.elastic());
+        return loadResourcePathSupport(trackingCollection)
+                .flatMap((resourcePath) -> Mono.zip(changeSets,
+                        findExecutedChangeSets(trackingCollection, resourcePath))
+                        .map((tuple) -> findPending(tuple.getT1(), tuple.getT2(), resourcePath)))
+                .flatMapMany((pending) -> Flux.fromIterable(BatchingChangeSetExecutor.group(pending, this.groups)
+                        .values()))
+                .flatMap((group) -> Flux.fromIterable(group)
+                        .concatMap((changeSet) -> execute(database, trackingCollection, changeSet)),
+                        Math.max(this.parallelism, 1))
+                .then();
+    }
+
+    private String computeFingerprint() {
+        List<Resource> files = new ArrayList<>();
+        files.add(this.file);
+        files.addAll(this.changeLogReader.resolveChangeLogFiles(this.file));
+        return ChangeLogFingerprint.compute(files);
+    }
+
+    private List<ChangeSet> readChangeSets() {
+        long start = System.nanoTime();
+        List<ChangeSet> changeSets = this.changeLogReader.read(
+                this.changeLogReader.resolveChangeLogFiles(this.file));
+        this.listener.changeLogsParsed(this.databaseName, changeSets.size(),
+                Duration.ofNanos(System.nanoTime() - start));
+        return changeSets;
+    }
+
+    private Mono<String> findFingerprint(MongoCollection<Document> trackingCollection) {
+        return Mono.from(trackingCollection.find(
+                new Document(MongeezTrackingCollection.TYPE, MongeezTrackingCollection.FINGERPRINT_TYPE)).first())
+                .map((document) -> document.getString(MongeezTrackingCollection.FINGERPRINT));
+    }
+
+    private Mono<Void> saveFingerprint(MongoCollection<Document> trackingCollection, String fingerprint) {
+        Document update = new Document("$set", new Document(MongeezTrackingCollection.FINGERPRINT, fingerprint)
+                .append(MongeezTrackingCollection.DATE, new Date()));
+        return Mono.from(trackingCollection.updateOne(
+                new Document(MongeezTrackingCollection.TYPE, MongeezTrackingCollection.FINGERPRINT_TYPE), update,
+                new UpdateOptions().upsert(true)))
+                .then();
+    }
+
+    /**
+     * Load the configuration record of the Mongeez collection, creating it the same way
+     * Mongeez does if it is missing.
+     * @param trackingCollection the Mongeez collection
+     * @return whether change sets are identified by their resource path, too
+     */
+    private Mono<Boolean> loadResourcePathSupport(MongoCollection<Document> trackingCollection) {
+        Document query = new Document(MongeezTrackingCollection.TYPE, MongeezTrackingCollection.CONFIGURATION_TYPE);
+        return Mono.from(trackingCollection.find(query).first())
+                .map((configuration) -> Boolean.TRUE.equals(
+                        configuration.getBoolean(MongeezTrackingCollection.SUPPORT_RESOURCE_PATH)))
+                .switchIfEmpty(Mono.defer(() -> Mono.from(trackingCollection.countDocuments())
+                        .map((count) -> count == 0)
+                        .flatMap((resourcePath) -> Mono.from(trackingCollection.insertOne(new Document(query)
+                                .append(MongeezTrackingCollection.SUPPORT_RESOURCE_PATH, resourcePath)))
+                                .thenReturn(resourcePath))));
+    }
+
+    private Mono<Set<ChangeSetKey>> findExecutedChangeSets(MongoCollection<Document> trackingCollection,
+                                                          boolean resourcePath) {
+        Document index = new Document(MongeezTrackingCollection.TYPE, 1)
+                .append(MongeezTrackingCollection.FILE, 1)
+                .append(MongeezTrackingCollection.CHANGE_ID, 1)
+                .append(MongeezTrackingCollection.AUTHOR, 1);
+        if (resourcePath) {
+            index.append(MongeezTrackingCollection.RESOURCE_PATH, 1);
+        }
+        Document query = new Document(MongeezTrackingCollection.TYPE,
+                MongeezTrackingCollection.CHANGE_SET_EXECUTION_TYPE);
+        Document projection = new Document("_id", 0)
+                .append(MongeezTrackingCollection.FILE, 1)
+                .append(MongeezTrackingCollection.CHANGE_ID, 1)
+                .append(MongeezTrackingCollection.AUTHOR, 1)
+                .append(MongeezTrackingCollection.RESOURCE_PATH, 1);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.from(trackingCollection.createIndex(index))
+                    .thenMany(trackingCollection.find(query).projection(projection))
+                    .map((document) -> new ChangeSetKey(document.getString(MongeezTrackingCollection.FILE),
+                            document.getString(MongeezTrackingCollection.CHANGE_ID),
+                            document.getString(MongeezTrackingCollection.AUTHOR),
+                            resourcePath ? document.getString(MongeezTrackingCollection.RESOURCE_PATH) : null))
+                    .collect(Collectors.toSet())
+                    .doOnNext((executed) -> this.listener.executedChangeSetsLoaded(this.databaseName,
+                            executed.size(), Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    private List<ChangeSet> findPending(List<ChangeSet> changeSets, Set<ChangeSetKey> executed, boolean resourcePath) {
+        List<ChangeSet> pending = new ArrayList<>();
+        for (ChangeSet changeSet : changeSets) {
+            if (BatchingChangeSetExecutor.isPending(changeSet, executed, resourcePath, this.context)) {
+                pending.add(changeSet);
+            } else if (changeSet.canBeAppliedInContext(this.context)) {
+                this.listener.changeSetSkipped(this.databaseName, changeSet);
+            }
+        }
+        logger.info("Process " + changeSets.size() + " change sets, " + pending.size() + " pending");
+        return pending;
+    }
+
+    private Mono<Void> execute(MongoDatabase database, MongoCollection<Document> trackingCollection,
+                               ChangeSet changeSet) {
+        if (changeSet instanceof BulkWriteChangeSet) {
+            return Mono.error(new IllegalStateException("Bulk write change set " + changeSet.getChangeId()
+                    + " is not supported by the reactive migrator"));
+        }
+        if (changeSet instanceof IndexChangeSet) {
+            return Mono.error(new IllegalStateException("Index change set " + changeSet.getChangeId()
+                    + " is not supported by the reactive migrator"));
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Flux.fromIterable(changeSet.getCommands())
+                    .concatMap((command) -> database.runCommand(new Document("eval", command.getBody())))
+                    .then(Mono.just(true))
+                    .onErrorResume((ex) -> {
+                        this.listener.changeSetFailed(this.databaseName, changeSet,
+                                Duration.ofNanos(System.nanoTime() - start), ex);
+                        if (changeSet.isFailOnError()) {
+                            return Mono.error(ex);
+                        }
+                        logger.warn("Change set " + changeSet.getChangeId()
+                                + " has failed, but failOnError is false", ex);
+                        return Mono.just(false);
+                    })
+                    .flatMap((succeeded) -> {
+                        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+                        return Mono.from(trackingCollection.insertOne(executionDocument(changeSet, duration)))
+                                .doOnSuccess((result) -> {
+                                    if (succeeded) {
+                                        this.listener.changeSetExecuted(this.databaseName, changeSet, duration);
+                                        logger.info("Change set " + changeSet.getChangeId() + " has been executed");
+                                    }
+                                });
+                    })
+                    .then();
+        });
+    }
+
+    private static Document executionDocument(ChangeSet changeSet, Duration duration) {
+        return new Document(MongeezTrackingCollection.TYPE, MongeezTrackingCollection.CHANGE_SET_EXECUTION_TYPE)
+                .append(MongeezTrackingCollection.FILE, changeSet.getFile())
+                .append(MongeezTrackingCollection.CHANGE_ID, changeSet.getChangeId())
+                .append(MongeezTrackingCollection.AUTHOR, changeSet.getAuthor())
+                .append(MongeezTrackingCollection.RESOURCE_PATH, changeSet.getResourcePath())
+                .append(MongeezTrackingCollection.DATE, new Date())
+                .append(MongeezTrackingCollection.DURATION, duration.toMillis());
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.DB;
+import org.mongeez.commands.Script;
+
+/**
+ * Executes the scripts of change sets on the given database like Mongeez' own DAO,
+ * which always connects with a new client of its own.
+ *
+ * @author Timo Kockert
+ */
+class ScriptRunner {
+
+    private final DB database;
+
+    ScriptRunner(DB database) {
+        this.database = database;
+    }
+
+    DB getDatabase() {
+        return this.database;
+    }
+
+    @SuppressWarnings("deprecation")
+    void run(Script script) {
+        this.database.eval(script.getBody());
+    }
+
+}
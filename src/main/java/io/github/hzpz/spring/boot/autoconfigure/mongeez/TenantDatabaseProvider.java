@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import java.util.List;
+
+/**
+ * Strategy interface for beans that provide the tenant databases to migrate in addition
+ * to the main database. Takes precedence over {@code mongeez.tenants.databases} and
+ * {@code mongeez.tenants.database-pattern}.
+ *
+ * @author Timo Kockert
+ */
+@FunctionalInterface
+public interface TenantDatabaseProvider {
+
+    /**
+     * Return the names of the tenant databases to migrate.
+     * @return the tenant database names
+     */
+    List<String> getDatabases();
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of the migration of all tenant databases.
+ *
+ * @author Timo Kockert
+ */
+public final class TenantMigrationReport {
+
+    private final List<String> succeeded;
+
+    private final Map<String, Throwable> failed;
+
+    private final Duration duration;
+
+    TenantMigrationReport(List<String> succeeded, Map<String, Throwable> failed, Duration duration) {
+        this.succeeded = Collections.unmodifiableList(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.duration = duration;
+    }
+
+    public List<String> getSucceeded() {
+        return this.succeeded;
+    }
+
+    public Map<String, Throwable> getFailed() {
+        return this.failed;
+    }
+
+    public Duration getDuration() {
+        return this.duration;
+    }
+
+    public boolean hasFailures() {
+        return !this.failed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Migrated " + (this.succeeded.size() + this.failed.size()) + " tenant databases in "
+                + this.duration.toMillis() + " ms, " + this.succeeded.size() + " succeeded, "
+                + this.failed.size() + " failed" + (hasFailures() ? " " + this.failed.keySet() : "");
+    }
+
+}
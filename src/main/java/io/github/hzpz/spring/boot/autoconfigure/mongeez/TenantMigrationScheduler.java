@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Migrates many tenant databases concurrently with a bounded number of threads.
+ * <p>
+ * A failing tenant does not affect the migration of other tenants. Once all tenants have
+ * been migrated, a {@link TenantMigrationReport} is logged and, if configured, an
+ * exception is thrown if any tenant has failed.
+ * <p>
+ * In asynchronous mode, tenants are migrated once the migration of the main database
+ * has finished and are skipped if it has failed.
+ *
+ * @author Timo Kockert
+ */
+public class TenantMigrationScheduler {
+
+    private static final Log logger = LogFactory.getLog(TenantMigrationScheduler.class);
+
+    private final TenantDatabaseProvider databaseProvider;
+
+    private final Consumer<String> migration;
+
+    private int parallelism = 4;
+
+    private boolean failOnError = true;
+
+    private boolean async;
+
+    private MigrationMongoClient migrationClient;
+
+    private CompletableFuture<Void> mainMigration = CompletableFuture.completedFuture(null);
+
+    private volatile TenantMigrationReport report;
+
+    /**
+     * Create a new scheduler.
+     * @param databaseProvider provides the tenant databases to migrate
+     * @param migration migrates a single tenant database
+     */
+    public TenantMigrationScheduler(TenantDatabaseProvider databaseProvider, Consumer<String> migration) {
+        this.databaseProvider = databaseProvider;
+        this.migration = migration;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setFailOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Keep the given client open until all tenants have been migrated.
+     * @param migrationClient the client the tenants are migrated with or {@code null}
+     */
+    public void setMigrationClient(MigrationMongoClient migrationClient) {
+        this.migrationClient = migrationClient;
+    }
+
+    /**
+     * Wait for the migration of the main database before tenants are migrated in
+     * asynchronous mode.
+     * @param mainMigration completes once the main database has been migrated
+     */
+    public void setMainMigration(CompletableFuture<Void> mainMigration) {
+        this.mainMigration = mainMigration;
+    }
+
+    /**
+     * Return the report of the last migration.
+     * @return the report or {@code null} if no migration has finished yet
+     */
+    public TenantMigrationReport getReport() {
+        return this.report;
+    }
+
+    public void migrate() {
+        if (this.migrationClient != null) {
+            this.migrationClient.retain();
+        }
+        if (!this.async) {
+            try {
+                migrateTenants();
+            } finally {
+                releaseMigrationClient();
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("mongeez-tenants-"));
+        executor.execute(() -> {
+            try {
+                this.mainMigration.join();
+                migrateTenants();
+            } catch (CompletionException ex) {
+                logger.error("Mongeez tenant migration skipped, the migration of the main database has failed",
+                        ex.getCause());
+            } catch (RuntimeException ex) {
+                logger.error("Mongeez tenant migration failed", ex);
+            } finally {
+                releaseMigrationClient();
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void releaseMigrationClient() {
+        if (this.migrationClient != null) {
+            this.migrationClient.release();
+        }
+    }
+
+    TenantMigrationReport migrateTenants() {
+        List<String> databases = this.databaseProvider.getDatabases();
+        if (databases.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int threads = Math.max(1, Math.min(this.parallelism, databases.size()));
+        logger.info("Migrating " + databases.size() + " tenant databases using " + threads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new CustomizableThreadFactory("mongeez-tenant-"));
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        try {
+            for (String database : databases) {
+                futures.put(database, executor.submit(() -> this.migration.accept(database)));
+            }
+            executor.shutdown();
+            List<String> succeeded = new ArrayList<>();
+            Map<String, Throwable> failed = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+                try {
+                    future.getValue().get();
+                    succeeded.add(future.getKey());
+                } catch (ExecutionException ex) {
+                    logger.error("Migration of tenant database " + future.getKey() + " has failed", ex.getCause());
+                    failed.put(future.getKey(), ex.getCause());
+                }
+            }
+            this.report = new TenantMigrationReport(succeeded, failed,
+                    Duration.ofNanos(System.nanoTime() - start));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while migrating tenant databases", ex);
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+        logger.info(this.report);
+        if (this.failOnError && this.report.hasFailures()) {
+            throw new IllegalStateException(this.report.toString());
+        }
+        return this.report;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
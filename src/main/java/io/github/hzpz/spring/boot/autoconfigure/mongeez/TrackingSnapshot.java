@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads change set executions from an export of the Mongeez collection, as written by
+ * {@code mongoexport --collection mongeez}, either with one document per line or as a
+ * JSON array.
+ *
+ * @author Timo Kockert
+ */
+final class TrackingSnapshot {
+
+    private final List<ChangeSetExecution> executions;
+
+    private final boolean resourcePathSupported;
+
+    private TrackingSnapshot(List<ChangeSetExecution> executions, boolean resourcePathSupported) {
+        this.executions = executions;
+        this.resourcePathSupported = resourcePathSupported;
+    }
+
+    static TrackingSnapshot read(Resource resource) {
+        List<DBObject> documents = readDocuments(resource);
+        DBObject configuration = null;
+        for (DBObject document : documents) {
+            if (MongeezTrackingCollection.CONFIGURATION_TYPE.equals(document.get(MongeezTrackingCollection.TYPE))) {
+                configuration = document;
+            }
+        }
+        boolean resourcePath = MongeezTrackingCollection.isResourcePathSupported(configuration, documents.isEmpty());
+        List<ChangeSetExecution> executions = new ArrayList<>();
+        for (DBObject document : documents) {
+            if (MongeezTrackingCollection.CHANGE_SET_EXECUTION_TYPE.equals(
+                    document.get(MongeezTrackingCollection.TYPE))) {
+                executions.add(MongeezTrackingCollection.toExecution(document, resourcePath));
+            }
+        }
+        return new TrackingSnapshot(executions, resourcePath);
+    }
+
+    List<ChangeSetExecution> getExecutions() {
+        return this.executions;
+    }
+
+    /**
+     * Return whether the exported collection identifies change sets by their resource
+     * path, too.
+     * @return whether the keys of the executions include the resource path
+     */
+    boolean isResourcePathSupported() {
+        return this.resourcePathSupported;
+    }
+
+    private static List<DBObject> readDocuments(Resource resource) {
+        String content = readContent(resource).trim();
+        List<DBObject> documents = new ArrayList<>();
+        if (content.startsWith("[")) {
+            // BasicDBObject only parses documents, so wrap the array
+            for (Object document : (List<?>) BasicDBObject.parse("{\"documents\": " + content + "}").get("documents")) {
+                documents.add((DBObject) document);
+            }
+            return documents;
+        }
+        for (String line : StringUtils.tokenizeToStringArray(content, "\r\n")) {
+            documents.add(BasicDBObject.parse(line));
+        }
+        return documents;
+    }
+
+    private static String readContent(Resource resource) {
+        try {
+            return FileCopyUtils.copyToString(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot read Mongeez collection export " + resource.getDescription(), ex);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.commands.Script;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchingChangeSetExecutorTests {
+
+    @Test
+    public void shouldGroupChangeSetsByFile() {
+        ChangeSet first = changeSet("a.xml", "1");
+        ChangeSet second = changeSet("b.xml", "2");
+        ChangeSet third = changeSet("a.xml", "3");
+        Map<String, List<ChangeSet>> groups = BatchingChangeSetExecutor.group(
+                Arrays.asList(first, second, third), Collections.emptyMap());
+        assertThat(groups.keySet(), contains("a.xml", "b.xml"));
+        assertThat(groups.get("a.xml"), contains(first, third));
+        assertThat(groups.get("b.xml"), contains(second));
+    }
+
+    @Test
+    public void shouldGroupChangeSetsByConfiguredGroup() {
+        ChangeSet first = changeSet("a.xml", "1");
+        ChangeSet second = changeSet("b.xml", "2");
+        ChangeSet third = changeSet("c.xml", "3");
+        Map<String, List<ChangeSet>> groups = BatchingChangeSetExecutor.group(
+                Arrays.asList(first, second, third), Collections.singletonMap("c.xml", "a.xml"));
+        assertThat(groups.size(), equalTo(2));
+        assertThat(groups.get("a.xml"), contains(first, third));
+    }
+
+    @Test
+    public void shouldBuildIndexesInBackgroundIfLastOfGroup() {
+        IndexChangeSet indexes = indexChangeSet("a.indexes.json", "1");
+        IndexChangeSetBuilder indexBuilder = indexBuilder();
+        executor(mock(ScriptRunner.class), indexBuilder).execute(Arrays.asList(changeSet("b.xml", "2"), indexes));
+        verify(indexBuilder).buildAsync(indexes);
+        verify(indexBuilder, never()).build(any());
+    }
+
+    @Test
+    public void shouldBuildIndexesBeforeFollowingChangeSetsOfGroup() {
+        IndexChangeSet indexes = indexChangeSet("a.indexes.json", "1");
+        IndexChangeSetBuilder indexBuilder = indexBuilder();
+        ScriptRunner scriptRunner = mock(ScriptRunner.class);
+        ChangeSet changeSet = changeSet("b.xml", "2");
+        executor(scriptRunner, indexBuilder).execute(Arrays.asList(indexes, changeSet));
+        verify(indexBuilder).build(indexes);
+        verify(indexBuilder, never()).buildAsync(any());
+        verify(scriptRunner).run(changeSet.getCommands().get(0));
+    }
+
+    private static BatchingChangeSetExecutor executor(ScriptRunner scriptRunner, IndexChangeSetBuilder indexBuilder) {
+        BatchingChangeSetExecutor executor = new BatchingChangeSetExecutor(scriptRunner,
+                mock(MongeezTrackingCollection.class), "db", null, mock(MigrationListener.class));
+        executor.setIndexBuilder(indexBuilder);
+        executor.setAsyncIndexBuilds(true);
+        return executor;
+    }
+
+    private static IndexChangeSetBuilder indexBuilder() {
+        IndexChangeSetBuilder indexBuilder = mock(IndexChangeSetBuilder.class);
+        when(indexBuilder.buildAsync(any())).thenReturn(new CompletableFuture<>());
+        return indexBuilder;
+    }
+
+    private static IndexChangeSet indexChangeSet(String file, String changeId) {
+        IndexChangeSet changeSet = new IndexChangeSet();
+        changeSet.setFile(file);
+        changeSet.setChangeId(changeId);
+        changeSet.setAuthor("test");
+        return changeSet;
+    }
+
+    private static ChangeSet changeSet(String file, String changeId) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile(file);
+        changeSet.setChangeId(changeId);
+        changeSet.setAuthor("test");
+        Script script = new Script();
+        script.setBody("db.foo.drop();");
+        changeSet.add(script);
+        return changeSet;
+    }
+
+}
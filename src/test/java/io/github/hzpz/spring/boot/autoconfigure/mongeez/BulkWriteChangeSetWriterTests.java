@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.DB;
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class BulkWriteChangeSetWriterTests {
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private DB database;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.database = this.context.getBean(Mongo.class).getDB("bulk");
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldReadChangeSetHeader() {
+        BulkWriteChangeSet changeSet = readChangeSet();
+        assertThat(changeSet.getChangeId(), equalTo("seedCountries"));
+        assertThat(changeSet.getAuthor(), equalTo("hzpz"));
+        assertThat(changeSet.getFile(), equalTo("countries.ndjson"));
+        assertThat(changeSet.getCollection(), equalTo("countries"));
+        assertThat(changeSet.isUpsert(), equalTo(true));
+        assertThat(changeSet.getBatchSize(), equalTo(2));
+    }
+
+    @Test
+    public void shouldWriteAllDocumentsInBatches() {
+        long written = new BulkWriteChangeSetWriter(this.database, 1000).write(readChangeSet());
+        assertThat(written, equalTo(5L));
+        assertThat(this.database.getCollection("countries").count(), equalTo(5L));
+        Object joined = this.database.getCollection("countries").findOne("PT").get("joined");
+        assertThat(joined, instanceOf(Date.class));
+    }
+
+    @Test
+    public void shouldReplaceDocumentsWhenUpserting() {
+        BulkWriteChangeSetWriter writer = new BulkWriteChangeSetWriter(this.database, 1000);
+        writer.write(readChangeSet());
+        writer.write(readChangeSet());
+        assertThat(this.database.getCollection("countries").count(), equalTo(5L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectBatchSizeBelowOne() {
+        BulkWriteChangeSetReader.read(resource("{\"changeId\": \"seed\", \"author\": \"hzpz\", "
+                + "\"collection\": \"countries\", \"batchSize\": 0}"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectDocumentsWithoutIdWhenUpserting() {
+        BulkWriteChangeSet changeSet = BulkWriteChangeSetReader.read(resource("{\"changeId\": \"seed\", "
+                + "\"author\": \"hzpz\", \"collection\": \"countries\", \"upsert\": true}\n"
+                + "{\"name\": \"Germany\"}"));
+        new BulkWriteChangeSetWriter(this.database, 1000).write(changeSet);
+    }
+
+    private static ByteArrayResource resource(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BulkWriteChangeSet readChangeSet() {
+        return BulkWriteChangeSetReader.read(new ClassPathResource("db/seed/countries.ndjson"));
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.commands.Script;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ChangeLogCacheTests {
+
+    private static final String LOCATION = "class path resource [db/changelog.xml]";
+
+    private static final byte[] DIGEST = {1, 2, 3, 4};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldDecodeEncodedChangeSets() {
+        ChangeSet changeSet = changeSet("1", "db.foo.insert({bar: 'ü'});", "db.foo.drop();");
+        changeSet.setRunAlways(true);
+        List<ChangeSet> decoded = ChangeSetCodec.decode(ByteBuffer.wrap(
+                ChangeSetCodec.encode(Arrays.asList(changeSet, changeSet("2")))));
+        assertThat(decoded, hasSize(2));
+        assertThat(decoded.get(0).getFile(), equalTo("changelog.xml"));
+        assertThat(decoded.get(0).getChangeId(), equalTo("1"));
+        assertThat(decoded.get(0).getAuthor(), equalTo("test"));
+        assertThat(decoded.get(0).getResourcePath(), nullValue());
+        assertThat(decoded.get(0).isRunAlways(), equalTo(true));
+        assertThat(decoded.get(0).getCommands(), hasSize(2));
+        assertThat(decoded.get(0).getCommands().get(0).getBody(), equalTo("db.foo.insert({bar: 'ü'});"));
+        assertThat(decoded.get(1).getCommands(), hasSize(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownEncoding() {
+        ChangeSetCodec.decode(ByteBuffer.wrap(new byte[] {0, 0, 0, 0, 0, 0, 0, 1}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidStringLength() {
+        ByteBuffer buffer = ByteBuffer.wrap(ChangeSetCodec.encode(Collections.singletonList(changeSet("1"))));
+        // the length of the file name follows magic number, version and count
+        buffer.putInt(12, Integer.MAX_VALUE);
+        ChangeSetCodec.decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeCount() {
+        ByteBuffer buffer = ByteBuffer.wrap(ChangeSetCodec.encode(Collections.singletonList(changeSet("1"))));
+        buffer.putInt(8, -1);
+        ChangeSetCodec.decode(buffer);
+    }
+
+    @Test
+    public void shouldReturnNullIfNotCached() throws IOException {
+        ChangeLogCache cache = new ChangeLogCache(this.temporaryFolder.newFolder().toPath());
+        assertThat(cache.get(LOCATION, DIGEST), nullValue());
+    }
+
+    @Test
+    public void shouldReturnCachedChangeSets() throws IOException {
+        ChangeLogCache cache = new ChangeLogCache(this.temporaryFolder.newFolder().toPath());
+        cache.put(LOCATION, DIGEST, Collections.singletonList(changeSet("1", "db.foo.drop();")));
+        List<ChangeSet> cached = cache.get(LOCATION, DIGEST);
+        assertThat(cached, hasSize(1));
+        assertThat(cached.get(0).getChangeId(), equalTo("1"));
+    }
+
+    @Test
+    public void shouldIgnoreCorruptCacheFile() throws IOException {
+        Path directory = this.temporaryFolder.newFolder().toPath();
+        ChangeLogCache cache = new ChangeLogCache(directory);
+        cache.put(LOCATION, DIGEST, Collections.singletonList(changeSet("1")));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.write(file, new byte[] {1, 2});
+            }
+        }
+        assertThat(cache.get(LOCATION, DIGEST), nullValue());
+        assertThat(cacheFiles(directory), hasSize(0));
+    }
+
+    @Test
+    public void shouldParseAgainIfCacheFileIsCorrupt() throws IOException {
+        File directory = this.temporaryFolder.newFolder();
+        Files.write(new File(directory, "changes.xml").toPath(), ("<mongoChangeLog><changeSet changeId=\"1\" "
+                + "author=\"test\"><script>db.foo.drop();</script></changeSet></mongoChangeLog>")
+                .getBytes(StandardCharsets.UTF_8));
+        List<Resource> files = Collections.singletonList(new FileSystemResource(new File(directory, "changes.xml")));
+        Path cacheDirectory = this.temporaryFolder.newFolder().toPath();
+        ChangeLogReader reader = new ChangeLogReader();
+        reader.setCache(new ChangeLogCache(cacheDirectory));
+        reader.read(files);
+        Path cacheFile = cacheFiles(cacheDirectory).get(0);
+        ByteBuffer corrupt = ByteBuffer.wrap(Files.readAllBytes(cacheFile));
+        corrupt.putInt(12, Integer.MAX_VALUE);
+        Files.write(cacheFile, corrupt.array());
+
+        List<ChangeSet> changeSets = reader.read(files);
+
+        assertThat(changeSets, hasSize(1));
+        assertThat(changeSets.get(0).getChangeId(), equalTo("1"));
+        assertThat(ChangeSetCodec.decode(ByteBuffer.wrap(Files.readAllBytes(cacheFile))), hasSize(1));
+    }
+
+    @Test
+    public void shouldNotShareCachedChangeSetsBetweenFilesWithSameContent() throws IOException {
+        File directory = this.temporaryFolder.newFolder();
+        String content = "<mongoChangeLog><changeSet changeId=\"1\" author=\"test\">"
+                + "<script>db.foo.drop();</script></changeSet></mongoChangeLog>";
+        Files.write(new File(directory, "first.xml").toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(directory, "second.xml").toPath(), content.getBytes(StandardCharsets.UTF_8));
+        List<Resource> first = Collections.singletonList(new FileSystemResource(new File(directory, "first.xml")));
+        List<Resource> second = Collections.singletonList(new FileSystemResource(new File(directory, "second.xml")));
+        ChangeLogReader reader = new ChangeLogReader();
+        reader.setCache(new ChangeLogCache(this.temporaryFolder.newFolder().toPath()));
+        reader.read(first);
+        reader.read(second);
+        // both reads are now served from the cache
+        assertThat(reader.read(first).get(0).getFile(), equalTo("first.xml"));
+        assertThat(reader.read(second).get(0).getFile(), equalTo("second.xml"));
+    }
+
+    private static List<Path> cacheFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static ChangeSet changeSet(String changeId, String... bodies) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile("changelog.xml");
+        changeSet.setChangeId(changeId);
+        changeSet.setAuthor("test");
+        for (String body : bodies) {
+            Script script = new Script();
+            script.setBody(body);
+            changeSet.add(script);
+        }
+        return changeSet;
+    }
+
+}
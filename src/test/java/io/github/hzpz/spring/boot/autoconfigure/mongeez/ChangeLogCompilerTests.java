@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChangeLogCompilerTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File resourceDirectory;
+
+    private File outputFile;
+
+    @Before
+    public void createChangeLogs() throws IOException {
+        this.resourceDirectory = this.temporaryFolder.newFolder("resources");
+        this.outputFile = new File(this.temporaryFolder.getRoot(), "classes/META-INF/mongeez/changelog.idx");
+        write("db/mongeez.xml", "<changeFiles><file path=\"changes.xml\"/></changeFiles>");
+    }
+
+    @Test
+    public void shouldCompileChangeLogs() throws IOException {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "<changeSet changeId=\"second\" author=\"hzpz\"><script>db.b.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+
+        ChangeLogCompiler compiler = new ChangeLogCompiler(this.resourceDirectory);
+        int compiled = compiler.compile("classpath:db/mongeez.xml", this.outputFile);
+
+        assertThat(compiled, equalTo(2));
+        ChangeLogIndex index = ChangeLogIndex.load(new FileSystemResource(this.outputFile));
+        assertThat(index.getLocation(), equalTo("db/mongeez.xml"));
+        assertThat(index.matches("db/mongeez.xml"), equalTo(true));
+        List<ChangeSet> changeSets = index.getChangeSets();
+        assertThat(changeSets.size(), equalTo(2));
+        assertThat(changeSets.get(1).getChangeId(), equalTo("second"));
+        assertThat(changeSets.get(1).getCommands().get(0).getBody(), equalTo("db.b.insert({});"));
+        assertThat(index.getChecksums().get(ChangeSetKey.of(changeSets.get(0))), notNullValue());
+        assertThat(changeSets.get(0).getResourcePath(), equalTo("db/changes.xml"));
+    }
+
+    @Test
+    public void shouldUseIndexIfChangeLogsAreUnchanged() throws IOException {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+        new ChangeLogCompiler(this.resourceDirectory).compile("db/mongeez.xml", this.outputFile);
+        ChangeLogIndex index = ChangeLogIndex.load(new FileSystemResource(this.outputFile));
+
+        List<ChangeSet> changeSets = withResourceDirectoryOnClasspath(() ->
+                new ChangeLogs(new ClassPathResource("db/mongeez.xml"), new ChangeLogReader(), index, true)
+                        .getChangeSets());
+
+        assertThat(changeSets.size(), equalTo(1));
+        assertThat(changeSets.get(0).getResourcePath(), equalTo("db/changes.xml"));
+    }
+
+    @Test
+    public void shouldParseChangeLogsIfIndexIsStale() throws IOException {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+        new ChangeLogCompiler(this.resourceDirectory).compile("db/mongeez.xml", this.outputFile);
+        ChangeLogIndex index = ChangeLogIndex.load(new FileSystemResource(this.outputFile));
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "<changeSet changeId=\"second\" author=\"hzpz\"><script>db.b.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+
+        List<ChangeSet> changeSets = withResourceDirectoryOnClasspath(() ->
+                new ChangeLogs(new ClassPathResource("db/mongeez.xml"), new ChangeLogReader(), index, false)
+                        .getChangeSets());
+
+        assertThat(changeSets.size(), equalTo(2));
+        try {
+            withResourceDirectoryOnClasspath(() ->
+                    new ChangeLogs(new ClassPathResource("db/mongeez.xml"), new ChangeLogReader(), index, true)
+                            .getChangeSets());
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertThat(ex.getMessage(), containsString("stale"));
+        }
+    }
+
+    @Test
+    public void shouldComputeSameFingerprintAsRuntime() throws IOException {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+
+        new ChangeLogCompiler(this.resourceDirectory).compile("db/mongeez.xml", this.outputFile);
+
+        ChangeLogIndex index = ChangeLogIndex.load(new FileSystemResource(this.outputFile));
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {this.resourceDirectory.toURI().toURL()},
+                null)) {
+            ChangeLogs changeLogs = new ChangeLogs(new ClassPathResource("db/mongeez.xml", classLoader),
+                    new ChangeLogReader());
+            assertThat(index.getFingerprint(), equalTo(changeLogs.getFingerprint()));
+        }
+    }
+
+    @Test
+    public void shouldFailOnDuplicateChangeSets() throws IOException {
+        write("db/changes.xml", "<mongoChangeLog>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.a.insert({});</script></changeSet>"
+                + "<changeSet changeId=\"first\" author=\"hzpz\"><script>db.b.insert({});</script></changeSet>"
+                + "</mongoChangeLog>");
+
+        try {
+            new ChangeLogCompiler(this.resourceDirectory).compile("db/mongeez.xml", this.outputFile);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertThat(ex.getMessage(), containsString("first by hzpz in changes.xml"));
+        }
+        assertThat(this.outputFile.exists(), equalTo(false));
+    }
+
+    private <T> T withResourceDirectoryOnClasspath(Supplier<T> action) throws IOException {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {this.resourceDirectory.toURI().toURL()},
+                null)) {
+            thread.setContextClassLoader(classLoader);
+            return action.get();
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(this.resourceDirectory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
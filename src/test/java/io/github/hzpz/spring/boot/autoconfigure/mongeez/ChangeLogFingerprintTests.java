@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class ChangeLogFingerprintTests {
+
+    @Test
+    public void shouldComputeSameFingerprintForSameContent() {
+        String first = ChangeLogFingerprint.compute(Arrays.asList(resource("a"), resource("b")));
+        String second = ChangeLogFingerprint.compute(Arrays.asList(resource("a"), resource("b")));
+        assertThat(first, equalTo(second));
+    }
+
+    @Test
+    public void shouldComputeDifferentFingerprintForChangedContent() {
+        String first = ChangeLogFingerprint.compute(Arrays.asList(resource("a"), resource("b")));
+        String second = ChangeLogFingerprint.compute(Arrays.asList(resource("a"), resource("c")));
+        assertThat(first, not(equalTo(second)));
+    }
+
+    @Test
+    public void shouldComputeDifferentFingerprintForChangedOrder() {
+        String first = ChangeLogFingerprint.compute(Arrays.asList(resource("a"), resource("b")));
+        String second = ChangeLogFingerprint.compute(Arrays.asList(resource("b"), resource("a")));
+        assertThat(first, not(equalTo(second)));
+    }
+
+    @Test
+    public void shouldComputeDifferentFingerprintForChangedPath() {
+        Resource content = resource("a");
+        String first = ChangeLogFingerprint.compute(Arrays.asList(content), (resource) -> "db/a/changes.xml");
+        String second = ChangeLogFingerprint.compute(Arrays.asList(content), (resource) -> "db/b/changes.xml");
+        assertThat(first, not(equalTo(second)));
+    }
+
+    @Test
+    public void shouldUseClasspathRelativePath() {
+        String first = ChangeLogFingerprint.compute(Arrays.asList(new ClassPathResource("db/mongeez.xml")));
+        String second = ChangeLogFingerprint.compute(Arrays.asList(new ClassPathResource("db/mongeez.xml")),
+                (resource) -> "db/mongeez.xml");
+        assertThat(first, equalTo(second));
+    }
+
+    private static Resource resource(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
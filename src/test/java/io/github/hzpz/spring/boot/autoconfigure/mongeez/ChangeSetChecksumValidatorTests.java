@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+import org.mongeez.commands.ChangeSet;
+import org.mongeez.commands.Script;
+import org.springframework.boot.diagnostics.FailureAnalysis;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChangeSetChecksumValidatorTests {
+
+    private final ChangeSetChecksumValidator validator = new ChangeSetChecksumValidator(ChangeSetChecksum::compute,
+            true);
+
+    @Test
+    public void shouldAcceptUnmodifiedChangeSets() {
+        ChangeSet changeSet = changeSet("1", "db.a.insert({});");
+        this.validator.validate(Collections.singletonList(changeSet), Collections.singletonList(
+                execution(changeSet, ChangeSetChecksum.compute(changeSet))));
+        assertThat(this.validator.getMissingChecksums().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void shouldIgnoreWhitespaceAroundScripts() {
+        ChangeSet changeSet = changeSet("1", "db.a.insert({});");
+        String checksum = ChangeSetChecksum.compute(changeSet("1", "\n    db.a.insert({});\n"));
+        assertThat(ChangeSetChecksum.compute(changeSet), equalTo(checksum));
+    }
+
+    @Test
+    public void shouldRejectModifiedChangeSets() {
+        ChangeSet executed = changeSet("1", "db.a.insert({});");
+        ChangeSet modified = changeSet("1", "db.b.insert({});");
+        try {
+            this.validator.validate(Arrays.asList(modified, changeSet("2", "db.c.insert({});")),
+                    Collections.singletonList(execution(executed, ChangeSetChecksum.compute(executed))));
+            fail("Expected ChangeSetChecksumMismatchException");
+        } catch (ChangeSetChecksumMismatchException ex) {
+            assertThat(ex.getMismatches().size(), equalTo(1));
+            assertThat(ex.getMismatches().get(0).getChangeId(), equalTo("1"));
+            FailureAnalysis analysis = new ChangeSetChecksumMismatchFailureAnalyzer().analyze(ex);
+            assertThat(analysis.getDescription(), containsString("1 by hzpz in changes.xml"));
+        }
+    }
+
+    @Test
+    public void shouldChecksumHeaderAndLengthOfBulkWriteChangeSets() {
+        BulkWriteChangeSet changeSet = bulkWriteChangeSet("{\"_id\": \"DE\"}");
+        String checksum = ChangeSetChecksum.compute(changeSet);
+        assertThat(ChangeSetChecksum.compute(bulkWriteChangeSet("{\"_id\": \"FR\"}")), equalTo(checksum));
+        assertThat(ChangeSetChecksum.compute(bulkWriteChangeSet("{\"_id\": \"DE\"}\n{\"_id\": \"FR\"}")),
+                not(equalTo(checksum)));
+        changeSet.setUpsert(false);
+        assertThat(ChangeSetChecksum.compute(changeSet), not(equalTo(checksum)));
+    }
+
+    @Test
+    public void shouldIgnoreRunAlwaysChangeSets() {
+        ChangeSet executed = changeSet("1", "db.a.insert({});");
+        ChangeSet modified = changeSet("1", "db.b.insert({});");
+        modified.setRunAlways(true);
+        this.validator.validate(Collections.singletonList(modified),
+                Collections.singletonList(execution(executed, ChangeSetChecksum.compute(executed))));
+    }
+
+    @Test
+    public void shouldCollectMissingChecksums() {
+        ChangeSet changeSet = changeSet("1", "db.a.insert({});");
+        this.validator.validate(Collections.singletonList(changeSet),
+                Collections.singletonList(execution(changeSet, null)));
+        assertThat(this.validator.getMissingChecksums().get(ChangeSetKey.of(changeSet)),
+                equalTo(ChangeSetChecksum.compute(changeSet)));
+    }
+
+    @Test
+    public void shouldMatchExecutionsByResourcePath() {
+        ChangeSet executed = changeSet("1", "db.a.insert({});");
+        executed.setResourcePath("db/a/changes.xml");
+        ChangeSet other = changeSet("1", "db.b.insert({});");
+        other.setResourcePath("db/b/changes.xml");
+        this.validator.validate(Collections.singletonList(other),
+                Collections.singletonList(execution(executed, ChangeSetChecksum.compute(executed))));
+    }
+
+    @Test
+    public void shouldIgnoreResourcePathIfNotSupported() {
+        ChangeSetChecksumValidator validator = new ChangeSetChecksumValidator(ChangeSetChecksum::compute, false);
+        ChangeSet executed = changeSet("1", "db.a.insert({});");
+        ChangeSet modified = changeSet("1", "db.b.insert({});");
+        modified.setResourcePath("db/changes.xml");
+        try {
+            validator.validate(Collections.singletonList(modified), Collections.singletonList(
+                    new ChangeSetExecution(ChangeSetKey.of(executed, false), null, null,
+                            ChangeSetChecksum.compute(executed))));
+            fail("Expected ChangeSetChecksumMismatchException");
+        } catch (ChangeSetChecksumMismatchException ex) {
+            assertThat(ex.getMismatches().size(), equalTo(1));
+        }
+    }
+
+    private static ChangeSet changeSet(String changeId, String body) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile("changes.xml");
+        changeSet.setChangeId(changeId);
+        changeSet.setAuthor("hzpz");
+        Script script = new Script();
+        script.setBody(body);
+        changeSet.add(script);
+        return changeSet;
+    }
+
+    private static ChangeSetExecution execution(ChangeSet changeSet, String checksum) {
+        return new ChangeSetExecution(ChangeSetKey.of(changeSet), null, null, checksum);
+    }
+
+    private static BulkWriteChangeSet bulkWriteChangeSet(String document) {
+        String content = "{\"changeId\": \"seed\", \"author\": \"test\", \"collection\": \"countries\", "
+                + "\"upsert\": true}\n" + document;
+        return BulkWriteChangeSetReader.read(new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
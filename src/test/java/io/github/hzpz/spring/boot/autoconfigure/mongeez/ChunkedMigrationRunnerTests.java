@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChunkedMigrationRunnerTests {
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private DB database;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.database = this.context.getBean(Mongo.class).getDB("chunked");
+        for (int i = 0; i < 25; i++) {
+            this.database.getCollection("users").insert(new BasicDBObject("_id", i).append("active", i % 5 != 0));
+        }
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldProcessAllDocumentsInChunks() {
+        RecordingMigration migration = new RecordingMigration(-1);
+        long processed = newRunner().run(migration);
+        assertThat(processed, equalTo(25L));
+        assertThat(migration.chunkSizes, contains(10, 10, 5));
+    }
+
+    @Test
+    public void shouldOnlyProcessMatchingDocuments() {
+        RecordingMigration migration = new RecordingMigration(-1) {
+
+            @Override
+            public DBObject getQuery() {
+                return new BasicDBObject("active", true);
+            }
+
+        };
+        assertThat(newRunner().run(migration), equalTo(20L));
+    }
+
+    @Test
+    public void shouldResumeFromLastCheckpoint() {
+        try {
+            newRunner().run(new RecordingMigration(1));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // first chunk has been checkpointed
+        }
+        RecordingMigration migration = new RecordingMigration(-1);
+        long processed = newRunner().run(migration);
+        assertThat(processed, equalTo(25L));
+        assertThat(migration.firstIds, contains(10, 20));
+        DBObject checkpoint = this.database.getCollection(ChunkedMigrationRunner.COLLECTION_NAME)
+                .findOne(new BasicDBObject("_id", "activateUsers"));
+        assertThat(checkpoint.get("completed"), equalTo(true));
+    }
+
+    @Test
+    public void shouldDelayWhenFasterThanAllowed() {
+        ChunkedMigrationRunner.Throttle throttle = new ChunkedMigrationRunner.Throttle(100);
+        throttle.record(50);
+        // 50 documents at 100 documents per second take at least 500 ms
+        assertThat(throttle.delayNanos(TimeUnit.MILLISECONDS.toNanos(200)),
+                equalTo(TimeUnit.MILLISECONDS.toNanos(300)));
+        assertThat(throttle.delayNanos(TimeUnit.MILLISECONDS.toNanos(600)) <= 0, equalTo(true));
+    }
+
+    private ChunkedMigrationRunner newRunner() {
+        ChunkedMigrationRunner runner = new ChunkedMigrationRunner(this.database);
+        runner.setBatchSize(10);
+        return runner;
+    }
+
+    private static class RecordingMigration implements ChunkedMigration {
+
+        private final int failAfterChunks;
+
+        private final List<Integer> chunkSizes = new ArrayList<>();
+
+        private final List<Integer> firstIds = new ArrayList<>();
+
+        RecordingMigration(int failAfterChunks) {
+            this.failAfterChunks = failAfterChunks;
+        }
+
+        @Override
+        public String getId() {
+            return "activateUsers";
+        }
+
+        @Override
+        public String getCollection() {
+            return "users";
+        }
+
+        @Override
+        public void migrate(DB database, List<DBObject> documents) {
+            if (this.chunkSizes.size() == this.failAfterChunks) {
+                throw new IllegalStateException("Simulated failure");
+            }
+            this.chunkSizes.add(documents.size());
+            this.firstIds.add((Integer) documents.get(0).get("_id"));
+        }
+
+    }
+
+}
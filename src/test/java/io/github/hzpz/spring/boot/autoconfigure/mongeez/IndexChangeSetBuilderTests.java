@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IndexChangeSetBuilderTests {
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private DB database;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.database = this.context.getBean(Mongo.class).getDB("indexes");
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldReadIndexChangeSet() {
+        IndexChangeSet changeSet = readChangeSet();
+        assertThat(changeSet.getChangeId(), equalTo("userIndexes"));
+        assertThat(changeSet.getAuthor(), equalTo("hzpz"));
+        assertThat(changeSet.getIndexes().size(), equalTo(2));
+        assertThat(changeSet.getIndexes().get(0).getName(), equalTo("email_1"));
+        assertThat(changeSet.getIndexes().get(1).getName(), equalTo("lastName_1_firstName_1"));
+    }
+
+    @Test
+    public void shouldCreateIndexes() {
+        int created = newBuilder().build(readChangeSet());
+        assertThat(created, equalTo(2));
+        // _id index and two created indexes
+        assertThat(this.database.getCollection("users").getIndexInfo().size(), equalTo(3));
+    }
+
+    @Test
+    public void shouldSkipExistingIndexes() {
+        this.database.getCollection("users").createIndex(new BasicDBObject("email", 1));
+        int created = newBuilder().build(readChangeSet());
+        assertThat(created, equalTo(1));
+    }
+
+    @Test
+    public void shouldCreateIndexesAsynchronously() throws Exception {
+        int created = newBuilder().buildAsync(readChangeSet()).get(30, TimeUnit.SECONDS);
+        assertThat(created, equalTo(2));
+    }
+
+    @Test
+    public void shouldCompareKeysInOrder() {
+        DBObject keys = new BasicDBObject("lastName", 1).append("firstName", 1);
+        assertThat(IndexChangeSetBuilder.sameKeys(new BasicDBObject("lastName", 1.0).append("firstName", 1.0), keys),
+                equalTo(true));
+        assertThat(IndexChangeSetBuilder.sameKeys(new BasicDBObject("firstName", 1).append("lastName", 1), keys),
+                equalTo(false));
+        assertThat(IndexChangeSetBuilder.sameKeys(new BasicDBObject("lastName", -1).append("firstName", 1), keys),
+                equalTo(false));
+    }
+
+    private IndexChangeSetBuilder newBuilder() {
+        return new IndexChangeSetBuilder(this.database, new CompositeMigrationListener(Collections.emptyList()));
+    }
+
+    private static IndexChangeSet readChangeSet() {
+        return IndexChangeSetReader.read(new ClassPathResource("db/indexes/users.indexes.json"));
+    }
+
+}
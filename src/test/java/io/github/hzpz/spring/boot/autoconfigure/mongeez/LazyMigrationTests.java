@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks the classes loaded when refreshing a context whose change logs are up to date.
+ * Each refresh uses a new class loader for Mongeez, Digester and this starter, so their
+ * classes are loaded again. Refresh times are only logged, see the startup benchmarks
+ * for measurements.
+ */
+public class LazyMigrationTests {
+
+    private static final Log logger = LogFactory.getLog(LazyMigrationTests.class);
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private int port;
+
+    @Before
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.port = this.context.getEnvironment().getRequiredProperty("local.mongo.port", Integer.class);
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldNotLoadMongeezParserIfChangeLogsAreUpToDate() throws Exception {
+        RecordingClassLoader migration = refresh(true);
+        assertThat(migration.getLoaded(), hasItem(startsWith("org.apache.commons.digester")));
+        RecordingClassLoader upToDate = refresh(true);
+        RecordingClassLoader parsed = refresh(false);
+        assertThat(filter(upToDate.getLoaded(), "org.apache.commons.digester"), empty());
+        assertThat(filter(upToDate.getLoaded(), "org.mongeez.reader."), empty());
+        assertThat(upToDate.getLoaded().size(), lessThan(parsed.getLoaded().size()));
+        logger.info("Refreshed in " + upToDate.getDuration().toMillis() + " ms with up to date change logs, "
+                + "in " + parsed.getDuration().toMillis() + " ms when parsing them");
+    }
+
+    @SuppressWarnings("unchecked")
+    private RecordingClassLoader refresh(boolean fingerprintEnabled) throws Exception {
+        RecordingClassLoader classLoader = new RecordingClassLoader(getClass().getClassLoader());
+        Function<String[], Long> refresh = (Function<String[], Long>) classLoader
+                .loadClass(Refresh.class.getName()).getDeclaredConstructor().newInstance();
+        classLoader.duration = refresh.apply(new String[] {
+                "spring.data.mongodb.port:" + this.port,
+                "spring.data.mongodb.database:lazy",
+                "mongeez.location:db/lazy/main.xml",
+                "mongeez.fingerprint.enabled:" + fingerprintEnabled
+        });
+        return classLoader;
+    }
+
+    private static Set<String> filter(Set<String> classNames, String prefix) {
+        Set<String> filtered = new TreeSet<>();
+        for (String className : classNames) {
+            if (className.startsWith(prefix)) {
+                filtered.add(className);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Refreshes a context with the class loader it has been loaded with.
+     */
+    public static class Refresh implements Function<String[], Long> {
+
+        @Override
+        public Long apply(String[] properties) {
+            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+            context.setClassLoader(getClass().getClassLoader());
+            TestPropertyValues.of(properties).applyTo(context);
+            context.register(MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+            long start = System.nanoTime();
+            try {
+                context.refresh();
+                return System.nanoTime() - start;
+            } finally {
+                context.close();
+            }
+        }
+
+    }
+
+    /**
+     * Loads Mongeez, Digester and this starter itself, recording the loaded classes, and
+     * delegates all other classes to its parent.
+     */
+    private static class RecordingClassLoader extends ClassLoader {
+
+        private static final String[] ISOLATED = {"io.github.hzpz.", "org.mongeez.", "org.apache.commons.digester"};
+
+        private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+
+        private long duration;
+
+        RecordingClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Set<String> getLoaded() {
+            return this.loaded;
+        }
+
+        Duration getDuration() {
+            return Duration.ofNanos(this.duration);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!isIsolated(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    type = define(name);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        private Class<?> define(String name) throws ClassNotFoundException {
+            try (InputStream inputStream = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (inputStream == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                byte[] bytes = StreamUtils.copyToByteArray(inputStream);
+                this.loaded.add(name);
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException ex) {
+                throw new ClassNotFoundException(name, ex);
+            }
+        }
+
+        private static boolean isIsolated(String name) {
+            for (String prefix : ISOLATED) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.mongeez.commands.ChangeSet;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MicrometerMigrationListenerTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MicrometerMigrationListener listener = new MicrometerMigrationListener(this.registry);
+
+    @Test
+    public void shouldCountChangeSetsByOutcome() {
+        ChangeSet changeSet = changeSet();
+        this.listener.changeSetSkipped("db", changeSet);
+        this.listener.changeSetSkipped("db", changeSet);
+        this.listener.changeSetExecuted("db", changeSet, Duration.ofMillis(5));
+        this.listener.changeSetFailed("db", changeSet, Duration.ofMillis(5), new IllegalStateException());
+        assertThat(count("skipped"), equalTo(2.0));
+        assertThat(count("executed"), equalTo(1.0));
+        assertThat(count("failed"), equalTo(1.0));
+    }
+
+    @Test
+    public void shouldTimeChangeSets() {
+        ChangeSet other = changeSet();
+        other.setChangeId("2");
+        this.listener.changeSetExecuted("db", changeSet(), Duration.ofMillis(5));
+        this.listener.changeSetExecuted("db", other, Duration.ofMillis(5));
+        long count = this.registry.get("mongeez.changeset")
+                .tag("database", "db")
+                .tag("file", "changelog.xml")
+                .timer()
+                .count();
+        assertThat(count, equalTo(2L));
+        assertThat(this.registry.find("mongeez.changeset").timers().size(), equalTo(1));
+    }
+
+    @Test
+    public void shouldTimeMigration() {
+        this.listener.migrationFinished("db", Duration.ofSeconds(1), null);
+        double seconds = this.registry.get("mongeez.migration")
+                .tag("outcome", "success")
+                .timer()
+                .totalTime(TimeUnit.SECONDS);
+        assertThat(seconds, equalTo(1.0));
+    }
+
+    private double count(String outcome) {
+        return this.registry.get("mongeez.changesets").tag("outcome", outcome).counter().count();
+    }
+
+    private static ChangeSet changeSet() {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile("changelog.xml");
+        changeSet.setChangeId("1");
+        changeSet.setAuthor("test");
+        return changeSet;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MigrationHistoryTests {
+
+    private static final String DATABASE = "history";
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private Mongo mongo;
+
+    private MigrationHistory history;
+
+    private MigrationHistoryListener listener;
+
+    @Before
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.mongo = this.context.getBean(Mongo.class);
+        MongeezProperties.History properties = new MongeezProperties.History();
+        properties.setMaxRuns(3);
+        this.history = new MigrationHistory(this.mongo, properties);
+        this.listener = new MigrationHistoryListener(this.history, "1.0.0");
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldRecordRunInCappedCollection() {
+        ChangeSet seed = changeSet("seed");
+        this.listener.migrationStarted(DATABASE);
+        this.listener.lockAcquired(DATABASE, Duration.ofMillis(5));
+        this.listener.changeLogsParsed(DATABASE, 2, Duration.ofMillis(20));
+        this.listener.executedChangeSetsLoaded(DATABASE, 1, Duration.ofMillis(3));
+        this.listener.changeSetSkipped(DATABASE, changeSet("first"));
+        this.listener.documentsAffected(DATABASE, seed, 42);
+        this.listener.changeSetExecuted(DATABASE, seed, Duration.ofMillis(100));
+        this.listener.migrationFinished(DATABASE, Duration.ofMillis(150), null);
+
+        assertThat(this.mongo.getDB(DATABASE).getCollection(MigrationHistory.COLLECTION_NAME).isCapped(),
+                equalTo(true));
+        List<MigrationRun> runs = this.history.findRuns(DATABASE, 10);
+        assertThat(runs, hasSize(1));
+        MigrationRun run = runs.get(0);
+        assertThat(run.getVersion(), equalTo("1.0.0"));
+        assertThat(run.getDuration(), equalTo(Duration.ofMillis(150)));
+        assertThat(run.getLockWaitTime(), equalTo(Duration.ofMillis(5)));
+        assertThat(run.getParseTime(), equalTo(Duration.ofMillis(20)));
+        assertThat(run.getLookupTime(), equalTo(Duration.ofMillis(3)));
+        assertThat(run.getSkipped(), equalTo(1));
+        assertThat(run.isUpToDate(), equalTo(false));
+        assertThat(run.getChangeSets(), hasSize(1));
+        assertThat(run.getChangeSets().get(0).getChangeId(), equalTo("seed"));
+        assertThat(run.getChangeSets().get(0).getDuration(), equalTo(Duration.ofMillis(100)));
+        assertThat(run.getChangeSets().get(0).getDocuments(), equalTo(42L));
+    }
+
+    @Test
+    public void shouldRecordUpToDateRun() {
+        this.listener.migrationStarted(DATABASE);
+        this.listener.migrationFinished(DATABASE, Duration.ofMillis(2), null);
+        MigrationRun run = this.history.findRuns(DATABASE, 10).get(0);
+        assertThat(run.isUpToDate(), equalTo(true));
+        assertThat(run.getParseTime(), nullValue());
+    }
+
+    @Test
+    public void shouldRecordFailure() {
+        ChangeSet changeSet = changeSet("broken");
+        this.listener.migrationStarted(DATABASE);
+        this.listener.changeLogsParsed(DATABASE, 1, Duration.ofMillis(20));
+        this.listener.changeSetFailed(DATABASE, changeSet, Duration.ofMillis(7), new IllegalStateException("boom"));
+        this.listener.migrationFinished(DATABASE, Duration.ofMillis(30), new IllegalStateException("boom"));
+        MigrationRun run = this.history.findRuns(DATABASE, 10).get(0);
+        assertThat(run.getFailure(), equalTo("boom"));
+        assertThat(run.getChangeSets().get(0).isFailed(), equalTo(true));
+        assertThat(this.history.findExecutions(DATABASE), hasSize(0));
+    }
+
+    @Test
+    public void shouldIgnoreChangeSetsFinishingAfterRun() {
+        this.listener.migrationStarted(DATABASE);
+        this.listener.migrationFinished(DATABASE, Duration.ofMillis(2), null);
+        // e.g. an index change set built in the background
+        this.listener.changeSetExecuted(DATABASE, changeSet("indexes"), Duration.ofMillis(500));
+        this.listener.migrationStarted(DATABASE);
+        this.listener.changeSetExecuted(DATABASE, changeSet("next"), Duration.ofMillis(5));
+        this.listener.migrationFinished(DATABASE, Duration.ofMillis(10), null);
+        List<MigrationRun.ChangeSetRun> changeSets = this.history.findRuns(DATABASE, 10).get(0).getChangeSets();
+        assertThat(changeSets, hasSize(1));
+        assertThat(changeSets.get(0).getKey(), equalTo(new ChangeSetKey("changes.xml", "next", "hzpz")));
+    }
+
+    @Test
+    public void shouldEstimateDurationFromMedianOfRecentRuns() {
+        ChangeSet changeSet = changeSet("always");
+        for (long millis : new long[] {1000, 10, 30, 20}) {
+            this.listener.migrationStarted(DATABASE);
+            this.listener.changeSetExecuted(DATABASE, changeSet, Duration.ofMillis(millis));
+            this.listener.migrationFinished(DATABASE, Duration.ofMillis(millis), null);
+        }
+        // the capped collection only keeps the last three runs
+        assertThat(this.history.findRuns(DATABASE, 10), hasSize(3));
+        Optional<Duration> estimate = this.history.estimateDuration(DATABASE, "changes.xml", "always", "hzpz");
+        assertThat(estimate.get(), equalTo(Duration.ofMillis(20)));
+        assertThat(this.history.estimateDuration(DATABASE, "changes.xml", "other", "hzpz").isPresent(),
+                equalTo(false));
+        List<ChangeSetExecution> executions = this.history.findExecutions(DATABASE);
+        assertThat(executions.get(executions.size() - 1).getDuration(), equalTo(Duration.ofMillis(20)));
+    }
+
+    private static ChangeSet changeSet(String changeId) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile("changes.xml");
+        changeSet.setChangeId(changeId);
+        changeSet.setAuthor("hzpz");
+        return changeSet;
+    }
+
+}
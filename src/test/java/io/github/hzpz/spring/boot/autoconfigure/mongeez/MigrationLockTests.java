@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MigrationLockTests {
+
+    private static final String DATABASE = "lock";
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private Mongo mongo;
+
+    @Before
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.mongo = this.context.getBean(Mongo.class);
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldAcquireFreeLock() {
+        MigrationLock lock = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        assertThat(lock.tryAcquire(), equalTo(true));
+        lock.release();
+    }
+
+    @Test
+    public void shouldNotAcquireLockHeldByOtherOwner() {
+        MigrationLock owner = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        MigrationLock other = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        owner.acquire();
+        try {
+            assertThat(other.tryAcquire(), equalTo(false));
+        } finally {
+            owner.release();
+        }
+    }
+
+    @Test
+    public void shouldAcquireLockAfterRelease() {
+        MigrationLock owner = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        MigrationLock other = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        owner.acquire();
+        owner.release();
+        assertThat(other.tryAcquire(), equalTo(true));
+        other.release();
+    }
+
+    @Test
+    public void shouldAcquireExpiredLock() throws InterruptedException {
+        MigrationLock owner = newLock(Duration.ofMillis(50), Duration.ofSeconds(1));
+        MigrationLock other = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        assertThat(owner.tryAcquire(), equalTo(true));
+        Thread.sleep(100);
+        assertThat(other.tryAcquire(), equalTo(true));
+        other.release();
+    }
+
+    @Test
+    public void shouldRenewOwnLock() {
+        MigrationLock owner = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        MigrationLock other = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        assertThat(owner.tryAcquire(), equalTo(true));
+        assertThat(owner.renew(), equalTo(true));
+        assertThat(other.renew(), equalTo(false));
+        owner.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailIfLockIsNotAvailableWithinMaxWait() {
+        MigrationLock owner = newLock(Duration.ofSeconds(30), Duration.ofSeconds(1));
+        MigrationLock other = newLock(Duration.ofSeconds(30), Duration.ofMillis(200));
+        owner.acquire();
+        try {
+            other.acquire();
+        } finally {
+            owner.release();
+        }
+    }
+
+    private MigrationLock newLock(Duration leaseTime, Duration maxWait) {
+        MongeezProperties.Lock properties = new MongeezProperties.Lock();
+        properties.setLeaseTime(leaseTime);
+        properties.setMaxWait(maxWait);
+        properties.setInitialBackoff(Duration.ofMillis(10));
+        properties.setMaxBackoff(Duration.ofMillis(50));
+        return new MigrationLock(this.mongo, DATABASE, properties);
+    }
+
+}
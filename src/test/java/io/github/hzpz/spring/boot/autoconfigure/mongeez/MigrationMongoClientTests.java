@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MigrationMongoClientTests {
+
+    // the driver connects lazily, so no server is needed
+    private final MigrationMongoClient client = new MigrationMongoClient(new MongoClient());
+
+    @After
+    public void close() {
+        this.client.destroy();
+    }
+
+    @Test
+    public void shouldStayOpenUntilContextHasBeenRefreshed() {
+        this.client.retain();
+        this.client.release();
+        assertThat(this.client.isClosed(), equalTo(false));
+        this.client.onApplicationEvent(null);
+        assertThat(this.client.isClosed(), equalTo(true));
+    }
+
+    @Test
+    public void shouldStayOpenWhileRetained() {
+        this.client.retain();
+        this.client.onApplicationEvent(null);
+        this.client.onApplicationEvent(null);
+        assertThat(this.client.isClosed(), equalTo(false));
+        this.client.release();
+        assertThat(this.client.isClosed(), equalTo(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailToRetainClosedClient() {
+        this.client.onApplicationEvent(null);
+        this.client.retain();
+    }
+
+    @Test
+    public void shouldApplySettings() {
+        MongeezProperties.Client properties = new MongeezProperties.Client();
+        properties.setMaxPoolSize(3);
+        properties.setConnectTimeout(Duration.ofSeconds(2));
+        properties.setSocketTimeout(Duration.ofMinutes(1));
+        properties.setReadConcern("majority");
+        properties.setWriteConcern("majority");
+        properties.setReadPreference("secondaryPreferred");
+        MongoClientOptions options = MigrationMongoClient.createOptions(properties).build();
+        assertThat(options.getConnectionsPerHost(), equalTo(3));
+        assertThat(options.getConnectTimeout(), equalTo(2000));
+        assertThat(options.getSocketTimeout(), equalTo(60000));
+        assertThat(options.getReadConcern(), equalTo(ReadConcern.MAJORITY));
+        assertThat(options.getWriteConcern(), equalTo(WriteConcern.MAJORITY));
+        assertThat(options.getReadPreference(), equalTo(ReadPreference.secondaryPreferred()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailOnUnknownWriteConcern() {
+        MongeezProperties.Client properties = new MongeezProperties.Client();
+        properties.setWriteConcern("sometimes");
+        MigrationMongoClient.createOptions(properties);
+    }
+
+}
@@ -23,8 +23,12 @@ import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
@@ -115,6 +119,117 @@ public class MongeezAutoConfigurationTests {
         assertThat(auth.getAuthDb(), equalTo(mongeezOverrideDatabase));
     }
 
+    @Test
+    public void shouldNotUseFingerprintByDefault() {
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        Mongeez mongeez = this.context.getBean(Mongeez.class);
+        Object fingerprintEnabled = ReflectionTestUtils.getField(mongeez, "fingerprintEnabled");
+        assertThat(fingerprintEnabled, equalTo(false));
+    }
+
+    @Test
+    public void shouldEnableFingerprintFromMongeezProperties() {
+        TestPropertyValues.of("mongeez.fingerprint.enabled:true").applyTo(this.context);
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        Mongeez mongeez = this.context.getBean(Mongeez.class);
+        Object fingerprintEnabled = ReflectionTestUtils.getField(mongeez, "fingerprintEnabled");
+        assertThat(fingerprintEnabled, equalTo(true));
+    }
+
+    @Test
+    public void shouldMakeMongoDbFactoryDependOnMongeezByDefault() {
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        assertThat(this.context.getBeanNamesForType(MongoDbFactoryDependsOnPostProcessor.class),
+                not(emptyArray()));
+    }
+
+    @Test
+    public void shouldNotMakeMongoDbFactoryDependOnMongeezInAsyncMode() {
+        TestPropertyValues.of("mongeez.mode:async").applyTo(this.context);
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        assertThat(this.context.getBeanNamesForType(MongoDbFactoryDependsOnPostProcessor.class),
+                emptyArray());
+        assertNotNull(this.context.getBean(MigrationState.class));
+        assertNotNull(this.context.getBean(MongeezHealthIndicator.class));
+    }
+
+    @Test
+    public void shouldNotScheduleTenantMigrationsByDefault() {
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        assertThat(this.context.getBeanNamesForType(TenantMigrationScheduler.class), emptyArray());
+    }
+
+    @Test
+    public void shouldScheduleTenantMigrationsWithTenantDatabaseProvider() {
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class, TenantDatabaseProviderConfiguration.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        assertThat(this.context.getBeanNamesForType(TenantMigrationScheduler.class),
+                arrayContaining("mongeezTenantMigrationScheduler"));
+    }
+
+    @Test
+    public void shouldUseApplicationClientByDefault() {
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        assertThat(this.context.getBeanNamesForType(MigrationMongoClient.class), emptyArray());
+    }
+
+    @Test
+    public void shouldCloseMigrationClientAfterRefresh() {
+        TestPropertyValues.of("mongeez.client.enabled:true").applyTo(this.context);
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+        MigrationMongoClient migrationClient = this.context.getBean(MigrationMongoClient.class);
+        Mongeez mongeez = this.context.getBean(Mongeez.class);
+        assertThat(ReflectionTestUtils.getField(mongeez, "migrationClient"), sameInstance(migrationClient));
+        assertThat(migrationClient.isClosed(), equalTo(true));
+    }
+
+    @Test
+    public void shouldSizeMigrationClientPoolForParallelism() {
+        MongeezProperties properties = new MongeezProperties();
+        properties.getParallel().setParallelism(3);
+        properties.getTenants().setDatabasePattern("tenant_.*");
+        MongeezAutoConfiguration.MongeezConfiguration.configureMaxPoolSize(properties, false);
+        assertThat(properties.getClient().getMaxPoolSize(), equalTo(12));
+    }
+
+    @Test
+    public void shouldKeepConfiguredMigrationClientPoolSize() {
+        MongeezProperties properties = new MongeezProperties();
+        properties.getParallel().setParallelism(3);
+        properties.getClient().setMaxPoolSize(2);
+        MongeezAutoConfiguration.MongeezConfiguration.configureMaxPoolSize(properties, true);
+        assertThat(properties.getClient().getMaxPoolSize(), equalTo(2));
+    }
+
+    @Test
+    public void shouldUseMinimumMigrationClientPoolSize() {
+        MongeezProperties properties = new MongeezProperties();
+        MongeezAutoConfiguration.MongeezConfiguration.configureMaxPoolSize(properties, false);
+        assertThat(properties.getClient().getMaxPoolSize(), equalTo(MigrationMongoClient.DEFAULT_MAX_POOL_SIZE));
+    }
+
+    @Test
+    public void shouldRegisterEndpoint() {
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class, MongoAutoConfiguration.class,
+                MongeezAutoConfiguration.class, MongeezEndpointAutoConfiguration.class);
+        assertNotNull(this.context.getBean(MongeezEndpoint.class));
+    }
+
+    @Test
+    public void shouldNotRegisterEndpointIfDisabled() {
+        TestPropertyValues.of("management.endpoint.mongeez.enabled:false").applyTo(this.context);
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class, MongoAutoConfiguration.class,
+                MongeezAutoConfiguration.class, MongeezEndpointAutoConfiguration.class);
+        assertThat(this.context.getBeanNamesForType(MongeezEndpoint.class), emptyArray());
+    }
+
     @Test(expected = BeanCreationException.class)
     public void shouldFailIfOnlyMongoCredentialsProvided() {
         String mongoUsername = "foo";
@@ -126,6 +241,21 @@ public class MongeezAutoConfigurationTests {
                 MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
     }
 
+    @Test(expected = BeanCreationException.class)
+    public void shouldFailIfBulkWriteBatchSizeIsBelowOne() {
+        TestPropertyValues.of("mongeez.bulk-write.batch-size:0").applyTo(this.context);
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+    }
+
+    @Test(expected = BeanCreationException.class)
+    public void shouldFailIfCompiledIndexIsRequiredButDisabled() {
+        TestPropertyValues.of("mongeez.compiled-index.enabled:false", "mongeez.compiled-index.required:true")
+                .applyTo(this.context);
+        registerAndRefresh(DoNotExecuteMongeezPostProcessor.class,
+                MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
+    }
+
     @Test(expected = BeanCreationException.class)
     public void shouldFailIfLocationDoesNotExist() {
         TestPropertyValues.of("mongeez.location:does/not/exist").applyTo(this.context);
@@ -133,4 +263,14 @@ public class MongeezAutoConfigurationTests {
                 MongoAutoConfiguration.class, MongeezAutoConfiguration.class);
     }
 
+    @Configuration
+    static class TenantDatabaseProviderConfiguration {
+
+        @Bean
+        public TenantDatabaseProvider tenantDatabaseProvider() {
+            return Collections::emptyList;
+        }
+
+    }
+
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MongeezEndpointTests {
+
+    private static final String DATABASE = "endpoint";
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private MongeezMigrator migrator;
+
+    private MongeezTrackingCollection trackingCollection;
+
+    @Before
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        Mongo mongo = this.context.getBean(Mongo.class);
+        this.migrator = new MongeezMigrator();
+        this.migrator.setMongo(mongo);
+        this.migrator.setDbName(DATABASE);
+        this.migrator.setFile(new ClassPathResource("db/plan/main.xml"));
+        this.trackingCollection = new MongeezTrackingCollection(mongo, DATABASE);
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldReportChecksumStateOfAppliedChangeSets() {
+        List<ChangeSet> changeSets = this.migrator.getChangeSets();
+        this.trackingCollection.logChangeSet(changeSets.get(0), Duration.ofMillis(10),
+                this.migrator.getChecksum(changeSets.get(0)));
+        this.trackingCollection.logChangeSet(changeSets.get(1), Duration.ofMillis(10));
+        ChangeSet removed = new ChangeSet();
+        removed.setFile("changes.xml");
+        removed.setChangeId("removed");
+        removed.setAuthor("hzpz");
+        this.trackingCollection.logChangeSet(removed, Duration.ofMillis(10), "0000");
+
+        MongeezEndpoint.MongeezReport report = new MongeezEndpoint(this.migrator).mongeez();
+
+        List<MongeezEndpoint.ChangeSetDescriptor> applied = report.getApplied();
+        assertThat(applied, hasSize(3));
+        assertThat(applied.get(0).getChecksum(), equalTo(MongeezEndpoint.ChecksumState.MATCHING));
+        assertThat(applied.get(1).getChecksum(), equalTo(MongeezEndpoint.ChecksumState.MISSING));
+        assertThat(applied.get(2).getChecksum(), nullValue());
+        assertThat(report.getPending(), hasSize(1));
+        assertThat(report.getPending().get(0).getChangeId(), equalTo("third"));
+        assertThat(report.getPending().get(0).getChecksum(), nullValue());
+    }
+
+    @Test
+    public void shouldReportDriftedChangeSets() {
+        ChangeSet changeSet = this.migrator.getChangeSets().get(0);
+        this.trackingCollection.logChangeSet(changeSet, Duration.ofMillis(10), "0000");
+
+        MongeezEndpoint.MongeezReport report = new MongeezEndpoint(this.migrator).mongeez();
+
+        assertThat(report.getApplied().get(0).getChangeId(), equalTo("first"));
+        assertThat(report.getApplied().get(0).getChecksum(), equalTo(MongeezEndpoint.ChecksumState.DRIFTED));
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MongeezHealthIndicatorTests {
+
+    private final MigrationState migrationState = new MigrationState();
+
+    private final MongeezHealthIndicator healthIndicator = new MongeezHealthIndicator(this.migrationState);
+
+    @Test
+    public void shouldBeOutOfServiceWhileRunning() {
+        this.migrationState.run(() ->
+                assertThat(this.healthIndicator.health().getStatus(), equalTo(Status.OUT_OF_SERVICE)));
+    }
+
+    @Test
+    public void shouldBeUpWhenCompleted() {
+        this.migrationState.run(() -> { });
+        assertThat(this.healthIndicator.health().getStatus(), equalTo(Status.UP));
+        assertThat(this.migrationState.getCompletion().isDone(), equalTo(true));
+    }
+
+    @Test
+    public void shouldBeDownWhenFailed() {
+        try {
+            this.migrationState.run(() -> {
+                throw new IllegalStateException("failed");
+            });
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertThat(this.healthIndicator.health().getStatus(), equalTo(Status.DOWN));
+        CompletableFuture<Void> completion = this.migrationState.getCompletion();
+        assertThat(completion.isCompletedExceptionally(), equalTo(true));
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MongeezPlannerTests {
+
+    @Test
+    public void shouldPlanAgainstSnapshotWithoutDatabase() {
+        MigrationPlan plan = MongeezPlanner.plan("--mongeez.location=classpath:db/plan/main.xml",
+                "--mongeez.plan.snapshot=classpath:db/plan/mongeez.json");
+
+        assertThat(plan.getSteps().size(), equalTo(2));
+        assertThat(plan.getSteps().get(0).getChangeId(), equalTo("second"));
+        assertThat(plan.getSteps().get(1).getChangeId(), equalTo("third"));
+        assertThat(plan.getSteps().get(0).getEstimatedDuration(), nullValue());
+    }
+
+    @Test
+    public void shouldMatchResourcePathIfSupported() {
+        MigrationPlan plan = MongeezPlanner.plan("--mongeez.location=classpath:db/plan/main.xml",
+                "--mongeez.plan.snapshot=classpath:db/plan/mongeez-resource-path.json");
+
+        assertThat(plan.getSteps().size(), equalTo(2));
+        assertThat(plan.getSteps().get(0).getChangeId(), equalTo("second"));
+        assertThat(plan.getSteps().get(1).getChangeId(), equalTo("third"));
+    }
+
+    @Test
+    public void shouldIgnoreResourcePathWithoutConfigurationRecord() {
+        MigrationPlan plan = MongeezPlanner.plan("--mongeez.location=classpath:db/plan/main.xml",
+                "--mongeez.plan.snapshot=classpath:db/plan/mongeez-legacy.json");
+
+        assertThat(plan.getSteps().size(), equalTo(1));
+        assertThat(plan.getSteps().get(0).getChangeId(), equalTo("third"));
+    }
+
+    @Test
+    public void shouldEstimateDurationsFromHistory() {
+        MigrationPlan plan = MongeezPlanner.plan("--mongeez.location=classpath:db/plan/main.xml",
+                "--mongeez.plan.snapshot=classpath:db/plan/mongeez.json",
+                "--mongeez.plan.history=classpath:db/plan/staging.json");
+
+        assertThat(plan.getSteps().get(0).getEstimatedDuration(), equalTo(Duration.ofMillis(1200)));
+        assertThat(plan.getEstimatedDuration(), equalTo(Duration.ofMillis(1200)));
+        assertThat(plan.format(), containsString("plus 1 change sets without previous executions"));
+    }
+
+}
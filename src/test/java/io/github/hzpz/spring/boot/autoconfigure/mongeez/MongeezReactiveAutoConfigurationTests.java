@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.Mongo;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.bson.Document;
+import org.junit.Test;
+import org.mongeez.Mongeez;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import reactor.core.publisher.Mono;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MongeezReactiveAutoConfigurationTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(MongeezAutoConfiguration.class,
+                    MongeezReactiveAutoConfiguration.class));
+
+    @Test
+    public void shouldMigrateWithReactiveClientIfNoBlockingMongoBean() {
+        this.contextRunner
+                .withUserConfiguration(ReactiveClientConfiguration.class, DoNotExecuteMigratorsPostProcessor.class)
+                .run((context) -> assertThat(context.getBeanNamesForType(ReactiveMongeezMigrator.class),
+                        arrayContaining("reactiveMongeez")));
+    }
+
+    @Test
+    public void shouldMigrateWithBlockingClientIfMongoBeanExists() {
+        this.contextRunner
+                .withUserConfiguration(ReactiveClientConfiguration.class, BlockingClientConfiguration.class,
+                        DoNotExecuteMigratorsPostProcessor.class)
+                .run((context) -> {
+                    assertThat(context.getBeanNamesForType(ReactiveMongeezMigrator.class).length, equalTo(0));
+                    assertThat(context.getBeanNamesForType(Mongeez.class).length, equalTo(1));
+                });
+    }
+
+    @Test
+    public void shouldMigrateWithReactiveClientIfEnabled() {
+        this.contextRunner
+                .withPropertyValues("mongeez.reactive.enabled:true")
+                .withUserConfiguration(ReactiveClientConfiguration.class, BlockingClientConfiguration.class,
+                        DoNotExecuteMigratorsPostProcessor.class)
+                .run((context) -> {
+                    assertThat(context.getBeanNamesForType(ReactiveMongeezMigrator.class).length, equalTo(1));
+                    assertThat(context.getBeanNamesForType(Mongeez.class).length, equalTo(0));
+                });
+    }
+
+    @Test
+    public void shouldMakeReactiveMongoDatabaseFactoryDependOnMongeez() {
+        this.contextRunner
+                .withUserConfiguration(ReactiveClientConfiguration.class, ReactiveDatabaseFactoryConfiguration.class,
+                        DoNotExecuteMigratorsPostProcessor.class)
+                .run((context) -> {
+                    BeanDefinition definition = context.getBeanFactory()
+                            .getBeanDefinition("reactiveMongoDatabaseFactory");
+                    assertThat(definition.getDependsOn(), arrayContaining("reactiveMongeez"));
+                });
+    }
+
+    @Test
+    public void shouldMigrateEmbeddedMongo() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(EmbeddedMongoAutoConfiguration.class,
+                        MongoReactiveAutoConfiguration.class, MongeezReactiveAutoConfiguration.class))
+                .withPropertyValues("spring.data.mongodb.port:0", "spring.data.mongodb.database:reactive",
+                        "mongeez.location:db/lazy/main.xml")
+                .run((context) -> {
+                    MongoClient client = context.getBean(MongoClient.class);
+                    Long executed = Mono.from(client.getDatabase("reactive")
+                            .getCollection(MongeezTrackingCollection.COLLECTION_NAME)
+                            .countDocuments(new Document(MongeezTrackingCollection.TYPE,
+                                    MongeezTrackingCollection.CHANGE_SET_EXECUTION_TYPE)))
+                            .block();
+                    assertThat(executed, equalTo(2L));
+                });
+    }
+
+    @Configuration
+    static class ReactiveClientConfiguration {
+
+        @Bean
+        public MongoClient reactiveMongoClient() {
+            return mock(MongoClient.class);
+        }
+
+    }
+
+    @Configuration
+    static class BlockingClientConfiguration {
+
+        @Bean
+        public Mongo mongo() {
+            return mock(Mongo.class);
+        }
+
+    }
+
+    @Configuration
+    static class ReactiveDatabaseFactoryConfiguration {
+
+        @Bean
+        public ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory() {
+            return mock(ReactiveMongoDatabaseFactory.class);
+        }
+
+    }
+
+    /**
+     * Disables the init methods of the migrators, so that no migration is attempted
+     * with the mocked clients.
+     */
+    static class DoNotExecuteMigratorsPostProcessor implements BeanFactoryPostProcessor {
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            for (String beanName : new String[] {"mongeez", "reactiveMongeez"}) {
+                if (beanFactory.containsBeanDefinition(beanName)) {
+                    BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+                    ((RootBeanDefinition) definition).setInitMethodName(null);
+                }
+            }
+        }
+
+    }
+
+}
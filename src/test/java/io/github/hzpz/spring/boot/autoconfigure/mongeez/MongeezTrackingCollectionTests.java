@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mongeez.commands.ChangeSet;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MongeezTrackingCollectionTests {
+
+    private static final String DATABASE = "tracking";
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private DBCollection collection;
+
+    private MongeezTrackingCollection trackingCollection;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        Mongo mongo = this.context.getBean(Mongo.class);
+        this.collection = mongo.getDB(DATABASE).getCollection(MongeezTrackingCollection.COLLECTION_NAME);
+        this.trackingCollection = new MongeezTrackingCollection(mongo, DATABASE);
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    public void shouldSupportResourcePathForEmptyCollection() {
+        assertThat(this.trackingCollection.isResourcePathSupported(), equalTo(true));
+    }
+
+    @Test
+    public void shouldFindExecutionsByResourcePathIfSupported() {
+        configure(true);
+        execution("first", "db/changes.xml");
+        execution("second", "db/legacy/changes.xml");
+
+        Set<ChangeSetKey> executed = this.trackingCollection.findExecutedChangeSets();
+
+        assertThat(executed.contains(this.trackingCollection.keyOf(changeSet("first", "db/changes.xml"))),
+                equalTo(true));
+        assertThat(executed.contains(this.trackingCollection.keyOf(changeSet("second", "db/changes.xml"))),
+                equalTo(false));
+        assertThat(BatchingChangeSetExecutor.isPending(changeSet("second", "db/changes.xml"), executed, true, null),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldIgnoreResourcePathIfNotSupported() {
+        configure(false);
+        execution("first", "db/legacy/changes.xml");
+
+        Set<ChangeSetKey> executed = this.trackingCollection.findExecutedChangeSets();
+
+        assertThat(executed.contains(this.trackingCollection.keyOf(changeSet("first", "db/changes.xml"))),
+                equalTo(true));
+        assertThat(BatchingChangeSetExecutor.isPending(changeSet("first", "db/changes.xml"), executed, false, null),
+                equalTo(false));
+    }
+
+    @Test
+    public void shouldIgnoreResourcePathWithoutConfigurationRecord() {
+        execution("first", null);
+
+        assertThat(this.trackingCollection.isResourcePathSupported(), equalTo(false));
+        assertThat(this.trackingCollection.findExecutedChangeSets().contains(
+                this.trackingCollection.keyOf(changeSet("first", "db/changes.xml"))), equalTo(true));
+    }
+
+    @Test
+    public void shouldCreateConfigurationRecordLikeMongeez() {
+        this.trackingCollection.configure();
+        execution("first", "db/changes.xml");
+
+        assertThat(new MongeezTrackingCollection(this.context.getBean(Mongo.class), DATABASE)
+                .isResourcePathSupported(), equalTo(true));
+    }
+
+    @Test
+    public void shouldNotSupportResourcePathForExistingExecutionsWhenConfigured() {
+        this.collection.insert(new BasicDBObject(MongeezTrackingCollection.FILE, "changes.xml")
+                .append(MongeezTrackingCollection.CHANGE_ID, "first")
+                .append(MongeezTrackingCollection.AUTHOR, "hzpz"));
+
+        this.trackingCollection.configure();
+
+        assertThat(this.trackingCollection.isResourcePathSupported(), equalTo(false));
+        assertThat(this.trackingCollection.findExecutedChangeSets().contains(
+                this.trackingCollection.keyOf(changeSet("first", null))), equalTo(true));
+    }
+
+    private void configure(boolean supportResourcePath) {
+        this.collection.insert(new BasicDBObject(MongeezTrackingCollection.TYPE,
+                MongeezTrackingCollection.CONFIGURATION_TYPE)
+                .append(MongeezTrackingCollection.SUPPORT_RESOURCE_PATH, supportResourcePath));
+    }
+
+    private void execution(String changeId, String resourcePath) {
+        BasicDBObject document = new BasicDBObject(MongeezTrackingCollection.TYPE,
+                MongeezTrackingCollection.CHANGE_SET_EXECUTION_TYPE)
+                .append(MongeezTrackingCollection.FILE, "changes.xml")
+                .append(MongeezTrackingCollection.CHANGE_ID, changeId)
+                .append(MongeezTrackingCollection.AUTHOR, "hzpz");
+        if (resourcePath != null) {
+            document.append(MongeezTrackingCollection.RESOURCE_PATH, resourcePath);
+        }
+        this.collection.insert(document);
+    }
+
+    private static ChangeSet changeSet(String changeId, String resourcePath) {
+        ChangeSet changeSet = new ChangeSet();
+        changeSet.setFile("changes.xml");
+        changeSet.setChangeId(changeId);
+        changeSet.setAuthor("hzpz");
+        changeSet.setResourcePath(resourcePath);
+        return changeSet;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+import org.springframework.boot.json.JsonParser;
+import org.springframework.boot.json.JsonParserFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class NativeImageConfigurationTests {
+
+    private static final String LOCATION = "META-INF/native-image/io.github.hzpz/mongeez-spring-boot-starter/";
+
+    private final JsonParser parser = JsonParserFactory.getJsonParser();
+
+    @Test
+    public void shouldOnlyReferenceExistingClasses() throws IOException {
+        List<String> missing = new ArrayList<>();
+        for (Object entry : this.parser.parseList(read("reflect-config.json"))) {
+            String name = (String) ((Map<?, ?>) entry).get("name");
+            try {
+                Class.forName(name, false, getClass().getClassLoader());
+            } catch (ClassNotFoundException ex) {
+                missing.add(name);
+            }
+        }
+        assertThat(missing, empty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldIncludeCompiledIndexAndDefaultChangeLog() throws IOException {
+        Map<String, Object> resources = (Map<String, Object>) this.parser.parseMap(read("resource-config.json"))
+                .get("resources");
+        List<Map<String, String>> includes = (List<Map<String, String>>) resources.get("includes");
+        assertThat(isIncluded(includes, ChangeLogIndex.DEFAULT_LOCATION), equalTo(true));
+        assertThat(isIncluded(includes, new MongeezProperties().getLocation()), equalTo(true));
+    }
+
+    private static boolean isIncluded(List<Map<String, String>> includes, String resource) {
+        for (Map<String, String> include : includes) {
+            if (Pattern.compile(include.get("pattern")).matcher(resource).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String read(String name) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(LOCATION + name).getInputStream()) {
+            return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.DB;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import org.junit.Test;
+import org.mongeez.commands.Script;
+
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ScriptRunnerTests {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldEvaluateScriptOnDatabase() {
+        DB database = mock(DB.class);
+        Script script = new Script();
+        script.setBody("db.foo.drop();");
+        new ScriptRunner(database).run(script);
+        verify(database).eval("db.foo.drop();");
+    }
+
+    @Test
+    public void shouldRunScriptsWithPoolAndTimeoutsOfMigrationClient() {
+        MongeezProperties.Client properties = new MongeezProperties.Client();
+        properties.setMaxPoolSize(3);
+        properties.setSocketTimeout(Duration.ofMinutes(1));
+        // the driver connects lazily, so no server is needed
+        MigrationMongoClient client = new MigrationMongoClient(new MongoClient(new ServerAddress(),
+                MigrationMongoClient.createOptions(properties).build()));
+        try {
+            MongeezMigrator migrator = new MongeezMigrator();
+            migrator.setMongo(new MongoClient());
+            migrator.setMigrationClient(client);
+            migrator.setDbName("test");
+            DB database = migrator.createScriptRunner().getDatabase();
+            assertThat(database.getName(), equalTo("test"));
+            assertThat(database.getMongo(), sameInstance(client.getMongo()));
+            MongoClientOptions options = ((MongoClient) database.getMongo()).getMongoClientOptions();
+            assertThat(options.getConnectionsPerHost(), equalTo(3));
+            assertThat(options.getSocketTimeout(), equalTo(60000));
+        } finally {
+            client.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TenantMigrationSchedulerTests {
+
+    private static final List<String> TENANTS = Arrays.asList("tenant1", "tenant2", "tenant3");
+
+    @Test
+    public void shouldMigrateAllTenants() {
+        Set<String> migrated = ConcurrentHashMap.newKeySet();
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(() -> TENANTS, migrated::add);
+
+        TenantMigrationReport report = scheduler.migrateTenants();
+
+        assertThat(migrated, containsInAnyOrder("tenant1", "tenant2", "tenant3"));
+        assertThat(report.getSucceeded(), contains("tenant1", "tenant2", "tenant3"));
+        assertThat(report.hasFailures(), equalTo(false));
+    }
+
+    @Test
+    public void shouldMigrateTenantsConcurrently() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(TENANTS.size());
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(() -> TENANTS, (database) -> {
+            started.countDown();
+            try {
+                started.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        scheduler.setParallelism(TENANTS.size());
+
+        scheduler.migrateTenants();
+
+        assertTrue(started.await(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldIsolateFailingTenant() {
+        Set<String> migrated = ConcurrentHashMap.newKeySet();
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(() -> TENANTS, (database) -> {
+            if ("tenant2".equals(database)) {
+                throw new IllegalStateException("broken");
+            }
+            migrated.add(database);
+        });
+        scheduler.setFailOnError(false);
+
+        TenantMigrationReport report = scheduler.migrateTenants();
+
+        assertThat(migrated, containsInAnyOrder("tenant1", "tenant3"));
+        assertThat(report.getFailed().keySet(), contains("tenant2"));
+    }
+
+    @Test
+    public void shouldFailAfterAllTenantsIfConfigured() {
+        Set<String> migrated = ConcurrentHashMap.newKeySet();
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(() -> TENANTS, (database) -> {
+            if ("tenant1".equals(database)) {
+                throw new IllegalStateException("broken");
+            }
+            migrated.add(database);
+        });
+
+        try {
+            scheduler.migrateTenants();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertThat(migrated, containsInAnyOrder("tenant2", "tenant3"));
+            assertThat(scheduler.getReport().getFailed().keySet(), contains("tenant1"));
+        }
+    }
+
+    @Test
+    public void shouldMigrateTenantsAfterMainDatabaseInAsyncMode() throws InterruptedException {
+        CompletableFuture<Void> mainMigration = new CompletableFuture<>();
+        CountDownLatch migrated = new CountDownLatch(TENANTS.size());
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(() -> TENANTS,
+                (database) -> migrated.countDown());
+        scheduler.setAsync(true);
+        scheduler.setMainMigration(mainMigration);
+
+        scheduler.migrate();
+
+        assertThat(migrated.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+        mainMigration.complete(null);
+        assertTrue(migrated.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldDoNothingWithoutTenants() {
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(Collections::emptyList, (database) -> {
+            throw new AssertionError("No tenant expected");
+        });
+
+        assertThat(scheduler.migrateTenants(), nullValue());
+    }
+
+}
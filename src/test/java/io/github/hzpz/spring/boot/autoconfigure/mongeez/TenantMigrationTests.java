@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.hzpz.spring.boot.autoconfigure.mongeez;
+
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class TenantMigrationTests {
+
+    private static final List<String> TENANTS = Arrays.asList("tenant1", "tenant2", "tenant3");
+
+    private static final int MAX_POOL_SIZE = 2;
+
+    private AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private Mongo mongo;
+
+    private MongoProperties mongoProperties = new MongoProperties();
+
+    @Before
+    public void startEmbeddedMongo() {
+        TestPropertyValues.of("spring.data.mongodb.port:0").applyTo(this.context);
+        this.context.register(EmbeddedMongoAutoConfiguration.class, MongoAutoConfiguration.class);
+        this.context.refresh();
+        this.mongo = this.context.getBean(Mongo.class);
+        this.mongoProperties.setHost("localhost");
+        this.mongoProperties.setPort(this.context.getEnvironment().getRequiredProperty("local.mongo.port",
+                Integer.class));
+    }
+
+    @After
+    public void close() {
+        if (this.context != null) {
+            this.context.close();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldMigrateTenantsWithDedicatedClientOnly() {
+        MongeezProperties.Client properties = new MongeezProperties.Client();
+        properties.setMaxPoolSize(MAX_POOL_SIZE);
+        MigrationMongoClient migrationClient = MigrationMongoClient.create(this.mongoProperties, properties, null);
+        MongeezMigrator mongeez = new MongeezMigrator();
+        mongeez.setMongo(this.mongo);
+        mongeez.setMigrationClient(migrationClient);
+        mongeez.setDbName("main");
+        mongeez.setFile(new ClassPathResource("db/tenants/main.xml"));
+        TenantMigrationScheduler scheduler = new TenantMigrationScheduler(() -> TENANTS,
+                (database) -> mongeez.forDatabase(database).process());
+        scheduler.setMigrationClient(migrationClient);
+        long created = getTotalConnectionsCreated();
+
+        mongeez.process();
+        scheduler.migrate();
+        migrationClient.onApplicationEvent(null);
+
+        assertThat(migrationClient.isClosed(), equalTo(true));
+        // the pool of the dedicated client and its monitor connection
+        assertThat(getTotalConnectionsCreated() - created, lessThanOrEqualTo((long) MAX_POOL_SIZE + 1));
+        for (String tenant : TENANTS) {
+            assertThat(this.mongo.getDB(tenant).getCollection("tenant").count(), equalTo(1L));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private long getTotalConnectionsCreated() {
+        DBObject connections = (DBObject) this.mongo.getDB("admin").command("serverStatus").get("connections");
+        return ((Number) connections.get("totalCreated")).longValue();
+    }
+
+}